@@ -0,0 +1,87 @@
+package br.olx.crawler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "security.login")
+public class AuthLoginProperties {
+    // Verificações de senha (BCrypt) executando ao mesmo tempo, cada uma ocupando uma thread do pool de autenticação
+    private int maxConcurrent = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    // Verificações aguardando uma thread livre; acima disso novos logins são recusados com 503
+    private int maxQueued = 50;
+    // Falhas seguidas permitidas por usuário e origem dentro da janela antes de recusar com 429
+    private int maxFailures = 5;
+    // Falhas permitidas por origem dentro da janela, somando todos os usuários; um login certo não as zera.
+    // A origem só distingue clientes se o endereço deles chega até aqui: atrás de um proxy reverso, o
+    // endereço do proxy precisa estar em trustedProxies, senão todos os clientes dividem uma origem só
+    private int maxFailuresPerOrigin = 20;
+    // Endereços IP (como o Java os escreve) dos proxies reversos cujo X-Forwarded-For é aceito como origem;
+    // de qualquer outro endereço o cabeçalho é ignorado, para um cliente não trocar de origem à vontade
+    private List<String> trustedProxies = new ArrayList<>();
+    // Janela de contagem das falhas; o bloqueio dura até ela terminar
+    private Duration window = Duration.ofMinutes(15);
+    // Registros de falha (por usuário/origem e por origem) em memória; um registro só sai quando a sua janela
+    // termina e, com o limite cheio, logins de pares ainda não acompanhados são recusados com 429
+    private int maxTrackedKeys = 10000;
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    public int getMaxFailures() {
+        return maxFailures;
+    }
+
+    public void setMaxFailures(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+
+    public int getMaxFailuresPerOrigin() {
+        return maxFailuresPerOrigin;
+    }
+
+    public void setMaxFailuresPerOrigin(int maxFailuresPerOrigin) {
+        this.maxFailuresPerOrigin = maxFailuresPerOrigin;
+    }
+
+    public List<String> getTrustedProxies() {
+        return trustedProxies;
+    }
+
+    public void setTrustedProxies(List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    public void setMaxTrackedKeys(int maxTrackedKeys) {
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+}
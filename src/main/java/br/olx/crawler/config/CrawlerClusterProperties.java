@@ -0,0 +1,41 @@
+package br.olx.crawler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "crawler.cluster")
+public class CrawlerClusterProperties {
+    // Quando desligado, o job agendado processa todos os links ativos, como uma instância única
+    private boolean enabled = true;
+    // Intervalo entre as renovações da lease de cada instância
+    private Duration heartbeatInterval = Duration.ofSeconds(10);
+    // Uma instância sem heartbeat há mais que isso é considerada fora do ar e perde sua parte dos links
+    private Duration leaseTtl = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getLeaseTtl() {
+        return leaseTtl;
+    }
+
+    public void setLeaseTtl(Duration leaseTtl) {
+        this.leaseTtl = leaseTtl;
+    }
+}
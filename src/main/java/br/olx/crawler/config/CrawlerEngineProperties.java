@@ -0,0 +1,29 @@
+package br.olx.crawler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "crawler.engine")
+public class CrawlerEngineProperties {
+    // Número máximo de links sendo processados ao mesmo tempo
+    private int maxConcurrency = 4;
+    // Número máximo de links do mesmo host sendo processados ao mesmo tempo
+    private int perHostConcurrency = 2;
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getPerHostConcurrency() {
+        return perHostConcurrency;
+    }
+
+    public void setPerHostConcurrency(int perHostConcurrency) {
+        this.perHostConcurrency = perHostConcurrency;
+    }
+}
@@ -0,0 +1,81 @@
+package br.olx.crawler.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.net.ssl.SSLContext;
+import java.lang.reflect.Method;
+import java.net.http.HttpClient;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+@Configuration
+public class CrawlerHttpClientConfig {
+
+    public static final String CONEXOES_ABERTAS_METRIC = "crawler.http.connections.opened";
+
+    // Executor de threads virtuais entregue ao HttpClient, encerrado junto com o contexto
+    private ExecutorService executor;
+
+    @Bean
+    public HttpClient crawlerHttpClient(CrawlerHttpProperties properties, MeterRegistry meterRegistry) throws NoSuchAlgorithmException {
+        Counter conexoesAbertas = Counter.builder(CONEXOES_ABERTAS_METRIC)
+                .description("Conexões TLS novas abertas pelo cliente HTTP do crawler")
+                .register(meterRegistry);
+
+        // O pool do HttpClient do JDK é global da JVM e só se configura por -D na inicialização (ver Dockerfile):
+        // connectionPoolSize limita as conexões HTTP/1.1 ociosas somadas de todos os hosts (0 = sem limite)
+        log.info("Criando cliente HTTP do crawler (HTTP/2, connect timeout {}, pool ocioso {} conexões no total, keep-alive {}s, threads {})",
+                properties.getConnectTimeout(),
+                System.getProperty("jdk.httpclient.connectionPoolSize", "0"),
+                System.getProperty("jdk.httpclient.keepalive.timeout", "padrão do JDK"),
+                properties.getThreads());
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(properties.getConnectTimeout())
+                .sslContext(new ContadorConexoesSslContext(SSLContext.getDefault(), conexoesAbertas::increment));
+        if (properties.getThreads() == CrawlerHttpProperties.Threads.VIRTUAL) {
+            executorVirtual().ifPresent(virtual -> {
+                executor = virtual;
+                builder.executor(virtual);
+            });
+        }
+        return builder.build();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Executor de threads virtuais, quando a JVM em execução oferece. O build mira o Java 17, então a
+     * fábrica do JDK 21 é obtida por reflexão; numa JVM mais antiga o cliente segue com o pool padrão.
+     * Sem o executor, o HttpClient cria uma thread de plataforma para cada resposta em andamento além
+     * das que estão livres, o que limita quantas páginas podem estar em voo ao mesmo tempo.
+     */
+    static Optional<ExecutorService> executorVirtual() {
+        try {
+            Method fabrica = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) fabrica.invoke(null));
+        } catch (NoSuchMethodException e) {
+            log.warn("Threads virtuais exigem Java 21 ou superior (JVM atual: {}); usando threads de plataforma",
+                    Runtime.version());
+            return Optional.empty();
+        } catch (ReflectiveOperationException e) {
+            log.warn("Não foi possível criar o executor de threads virtuais; usando threads de plataforma", e);
+            return Optional.empty();
+        }
+    }
+}
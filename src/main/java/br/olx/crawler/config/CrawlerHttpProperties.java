@@ -0,0 +1,69 @@
+package br.olx.crawler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "crawler.http")
+public class CrawlerHttpProperties {
+
+    public enum Threads {
+        // Pool de threads de plataforma criado pelo próprio HttpClient do JDK
+        PLATAFORMA,
+        // Uma thread virtual por tarefa; exige JDK 21 ou superior, senão volta para PLATAFORMA
+        VIRTUAL
+    }
+
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    private Duration readTimeout = Duration.ofSeconds(30);
+    // Threads que tratam as respostas e entregam os corpos das páginas ao crawler
+    private Threads threads = Threads.PLATAFORMA;
+    // Limite do corpo de uma página depois de descomprimido; o excedente é descartado sem ser lido
+    private DataSize maxBodySize = DataSize.ofMegabytes(5);
+    // Encerra a leitura da página quando o estado embutido (__NEXT_DATA__), de onde saem os anúncios, termina
+    // trazendo anúncios; sem eles a página é lida inteira para o scanner de tags
+    private boolean stopAfterPageState = true;
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public Threads getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Threads threads) {
+        this.threads = threads;
+    }
+
+    public DataSize getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public void setMaxBodySize(DataSize maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    public boolean isStopAfterPageState() {
+        return stopAfterPageState;
+    }
+
+    public void setStopAfterPageState(boolean stopAfterPageState) {
+        this.stopAfterPageState = stopAfterPageState;
+    }
+}
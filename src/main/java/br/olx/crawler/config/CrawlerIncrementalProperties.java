@@ -0,0 +1,50 @@
+package br.olx.crawler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "crawler.incremental")
+public class CrawlerIncrementalProperties {
+    private boolean enabled = true;
+    // Páginas seguidas sem nenhum anúncio novo até o crawler parar de paginar
+    private int pagesWithoutNew = 2;
+    // Intervalo máximo entre dois crawlers completos do mesmo link
+    private Duration fullCrawlInterval = Duration.ofHours(24);
+    // Quantidade de ids de anúncios lembrados por link
+    private int maxKnownAds = 2000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getPagesWithoutNew() {
+        return pagesWithoutNew;
+    }
+
+    public void setPagesWithoutNew(int pagesWithoutNew) {
+        this.pagesWithoutNew = pagesWithoutNew;
+    }
+
+    public Duration getFullCrawlInterval() {
+        return fullCrawlInterval;
+    }
+
+    public void setFullCrawlInterval(Duration fullCrawlInterval) {
+        this.fullCrawlInterval = fullCrawlInterval;
+    }
+
+    public int getMaxKnownAds() {
+        return maxKnownAds;
+    }
+
+    public void setMaxKnownAds(int maxKnownAds) {
+        this.maxKnownAds = maxKnownAds;
+    }
+}
@@ -0,0 +1,61 @@
+package br.olx.crawler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "crawler.jobs")
+public class CrawlerJobsProperties {
+    // Número máximo de jobs executando ao mesmo tempo
+    private int maxConcurrent = 2;
+    // Número máximo de jobs aguardando execução; acima disso novas submissões são recusadas
+    private int maxQueued = 20;
+    // Tempo que um job finalizado fica guardado antes de o índice TTL removê-lo
+    private Duration retention = Duration.ofDays(7);
+    // Intervalo entre os heartbeats dos jobs em aberto de cada instância
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+    // Job em aberto sem heartbeat há mais que isso perdeu a instância dona e é marcado como falho
+    private Duration staleAfter = Duration.ofMinutes(1);
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getStaleAfter() {
+        return staleAfter;
+    }
+
+    public void setStaleAfter(Duration staleAfter) {
+        this.staleAfter = staleAfter;
+    }
+}
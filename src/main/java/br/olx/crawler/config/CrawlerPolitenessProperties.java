@@ -0,0 +1,98 @@
+package br.olx.crawler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "crawler.politeness")
+public class CrawlerPolitenessProperties {
+    // Taxas em requisições por segundo, por host. A inicial mantém os ~2 s entre páginas da varredura
+    // agendada; sem bloqueios a taxa sobe até a máxima, e cada 403/429 a derruba em direção à mínima
+    private double initialRate = 0.5;
+    private double minRate = 1.0 / 60;
+    private double maxRate = 1.0;
+    // Requisições que podem sair em sequência depois de um período ocioso
+    private int burst = 1;
+    // Aumento aditivo da taxa a cada resposta 200: da inicial à máxima em ~25 respostas
+    private double increaseStep = 0.02;
+    // Fator multiplicativo aplicado à taxa a cada 403/429
+    private double decreaseFactor = 0.5;
+    // Fração aleatória do intervalo somada a cada espera
+    private double jitter = 0.25;
+    private int maxRetries = 3;
+    private Duration retryBackoff = Duration.ofSeconds(2);
+
+    public double getInitialRate() {
+        return initialRate;
+    }
+
+    public void setInitialRate(double initialRate) {
+        this.initialRate = initialRate;
+    }
+
+    public double getMinRate() {
+        return minRate;
+    }
+
+    public void setMinRate(double minRate) {
+        this.minRate = minRate;
+    }
+
+    public double getMaxRate() {
+        return maxRate;
+    }
+
+    public void setMaxRate(double maxRate) {
+        this.maxRate = maxRate;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public double getIncreaseStep() {
+        return increaseStep;
+    }
+
+    public void setIncreaseStep(double increaseStep) {
+        this.increaseStep = increaseStep;
+    }
+
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public void setDecreaseFactor(double decreaseFactor) {
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public void setJitter(double jitter) {
+        this.jitter = jitter;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(Duration retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+}
@@ -0,0 +1,100 @@
+package br.olx.crawler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "crawler.revisit")
+public class CrawlerRevisitProperties {
+    // Quando ligado, substitui o cron único e o resumo diário: cada link é visitado no seu próprio intervalo
+    private boolean enabled = false;
+    // Frequência com que a fila é consultada em busca de links vencidos
+    private Duration tick = Duration.ofSeconds(30);
+    // Frequência com que a fila é reconstruída a partir dos links do banco
+    private Duration reloadInterval = Duration.ofMinutes(5);
+    // Intervalo de um link ainda sem histórico
+    private Duration initialInterval = Duration.ofHours(6);
+    // Limites do intervalo adaptativo; cada link pode sobrescrevê-los
+    private Duration minInterval = Duration.ofMinutes(30);
+    private Duration maxInterval = Duration.ofDays(3);
+    // Fator aplicado ao intervalo quando a visita encontrou alterações
+    private double speedUpFactor = 0.5;
+    // Fator aplicado ao intervalo quando a visita não encontrou nada novo
+    private double slowDownFactor = 1.5;
+    // Atraso aleatório somado a cada agendamento, para espalhar as visitas
+    private Duration jitterWindow = Duration.ofMinutes(15);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getTick() {
+        return tick;
+    }
+
+    public void setTick(Duration tick) {
+        this.tick = tick;
+    }
+
+    public Duration getReloadInterval() {
+        return reloadInterval;
+    }
+
+    public void setReloadInterval(Duration reloadInterval) {
+        this.reloadInterval = reloadInterval;
+    }
+
+    public Duration getInitialInterval() {
+        return initialInterval;
+    }
+
+    public void setInitialInterval(Duration initialInterval) {
+        this.initialInterval = initialInterval;
+    }
+
+    public Duration getMinInterval() {
+        return minInterval;
+    }
+
+    public void setMinInterval(Duration minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    public Duration getMaxInterval() {
+        return maxInterval;
+    }
+
+    public void setMaxInterval(Duration maxInterval) {
+        this.maxInterval = maxInterval;
+    }
+
+    public double getSpeedUpFactor() {
+        return speedUpFactor;
+    }
+
+    public void setSpeedUpFactor(double speedUpFactor) {
+        this.speedUpFactor = speedUpFactor;
+    }
+
+    public double getSlowDownFactor() {
+        return slowDownFactor;
+    }
+
+    public void setSlowDownFactor(double slowDownFactor) {
+        this.slowDownFactor = slowDownFactor;
+    }
+
+    public Duration getJitterWindow() {
+        return jitterWindow;
+    }
+
+    public void setJitterWindow(Duration jitterWindow) {
+        this.jitterWindow = jitterWindow;
+    }
+}
@@ -0,0 +1,41 @@
+package br.olx.crawler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "crawler.runs")
+public class CrawlerRunsProperties {
+    // Intervalo entre os heartbeats de uma execução em andamento
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+    // Execução sem heartbeat há mais que isso foi interrompida e pode ser retomada por qualquer instância
+    private Duration staleAfter = Duration.ofMinutes(1);
+    // Tempo que execuções finalizadas e checkpoints ficam guardados
+    private Duration retention = Duration.ofDays(30);
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getStaleAfter() {
+        return staleAfter;
+    }
+
+    public void setStaleAfter(Duration staleAfter) {
+        this.staleAfter = staleAfter;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+}
@@ -15,6 +15,7 @@ import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
@@ -34,24 +35,22 @@ public class JwtAuthenticationWebFilter implements WebFilter {
             return chain.filter(exchange);
         }
 
+        // Uma verificação por token, reaproveitada pelo cache do JwtService até o exp.
+        // A cadeia roda uma única vez: com o contexto autenticado ou, sem token válido, sem ele
         return extractToken(exchange)
-                .filter(jwtService::validateToken)
-                .filter(token -> !jwtService.isTokenExpired(token))
-                .flatMap(token -> {
-                    String username = jwtService.getUsernameFromToken(token);
-                    Set<String> roles = jwtService.getRolesFromToken(token);
-
-                    Set<SimpleGrantedAuthority> authorities = roles.stream()
-                            .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
-                            .collect(Collectors.toSet());
+                .flatMap(token -> Mono.justOrEmpty(jwtService.verificar(token)))
+                .map(principal -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(autenticacao(principal))))
+                .defaultIfEmpty(Mono.defer(() -> chain.filter(exchange)))
+                .flatMap(Function.identity());
+    }
 
-                    Authentication auth = new UsernamePasswordAuthenticationToken(
-                            username, null, authorities);
+    private Authentication autenticacao(JwtService.JwtPrincipal principal) {
+        Set<SimpleGrantedAuthority> authorities = principal.roles().stream()
+                .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                .collect(Collectors.toSet());
 
-                    return chain.filter(exchange)
-                            .contextWrite(ReactiveSecurityContextHolder.withAuthentication(auth));
-                })
-                .switchIfEmpty(chain.filter(exchange));
+        return new UsernamePasswordAuthenticationToken(principal.username(), null, authorities);
     }
 
     private Mono<String> extractToken(ServerWebExchange exchange) {
@@ -72,7 +71,8 @@ public class JwtAuthenticationWebFilter implements WebFilter {
                path.startsWith("/api-docs") ||
                path.equals("/api-docs") ||
                path.startsWith("/v3/api-docs") ||
-               path.startsWith("/actuator") ||
+               path.startsWith("/actuator/health") ||
+               path.equals("/actuator/info") ||
                path.startsWith("/webjars/") ||
                path.startsWith("/swagger-resources/") ||
                path.equals("/favicon.ico");
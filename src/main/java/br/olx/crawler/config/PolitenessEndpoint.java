@@ -0,0 +1,24 @@
+package br.olx.crawler.config;
+
+import br.olx.crawler.dto.EstadoHost;
+import br.olx.crawler.service.PolitenessSchedulerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Expõe em /actuator/politeness a taxa atual e os bloqueios de cada host, para calibrar o crawler
+@Component
+@Endpoint(id = "politeness")
+@RequiredArgsConstructor
+public class PolitenessEndpoint {
+
+    private final PolitenessSchedulerService politenessSchedulerService;
+
+    @ReadOperation
+    public List<EstadoHost> estado() {
+        return politenessSchedulerService.estado();
+    }
+}
@@ -32,7 +32,10 @@ public class SecurityConfig {
                 .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
                 .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
                 .authorizeExchange(exchanges -> exchanges
-                        // Permitir todas as requisições - autorização será feita via @PreAuthorize
+                        // Só health e info do actuator são públicos; métricas e o estado de politeness exigem ADMIN
+                        .pathMatchers("/actuator/health", "/actuator/health/**", "/actuator/info").permitAll()
+                        .pathMatchers("/actuator/**").hasRole("ADMIN")
+                        // Permitir as demais requisições - autorização será feita via @PreAuthorize
                         .anyExchange().permitAll()
                 )
                 .addFilterBefore(jwtAuthenticationWebFilter, SecurityWebFiltersOrder.AUTHENTICATION)
@@ -0,0 +1,81 @@
+package br.olx.crawler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "whatsapp.dispatch")
+public class WhatsappDispatchProperties {
+    // Número que recebe as notificações do crawler
+    private String number;
+    // Número máximo de envios simultâneos à API
+    private int maxConcurrency = 2;
+    // Intervalo mínimo entre dois envios à API
+    private Duration minInterval = Duration.ofSeconds(1);
+    // Tamanho máximo de uma mensagem; blocos de vários links são agrupados até esse limite
+    private int maxMessageLength = 4000;
+    // Tentativas de envio de uma mensagem antes de ela ser descartada
+    private int maxAttempts = 5;
+    // Espera antes da primeira retentativa; dobra a cada nova falha
+    private Duration retryBackoff = Duration.ofSeconds(30);
+    // Frequência com que a fila de retentativas é consultada
+    private Duration retryPoll = Duration.ofSeconds(30);
+
+    public String getNumber() {
+        return number;
+    }
+
+    public void setNumber(String number) {
+        this.number = number;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Duration getMinInterval() {
+        return minInterval;
+    }
+
+    public void setMinInterval(Duration minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    public int getMaxMessageLength() {
+        return maxMessageLength;
+    }
+
+    public void setMaxMessageLength(int maxMessageLength) {
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(Duration retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    public Duration getRetryPoll() {
+        return retryPoll;
+    }
+
+    public void setRetryPoll(Duration retryPoll) {
+        this.retryPoll = retryPoll;
+    }
+}
@@ -1,13 +1,19 @@
 package br.olx.crawler.controller;
 
+import br.olx.crawler.config.AuthLoginProperties;
 import br.olx.crawler.dto.JwtResponse;
 import br.olx.crawler.dto.LoginRequest;
 import br.olx.crawler.service.AuthService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/auth")
 @RequiredArgsConstructor
@@ -15,16 +21,44 @@ public class AuthController {
 
     private static final String ADMIN_AUTH_TYPE = "ADMIN";
     private final AuthService authService;
+    private final AuthLoginProperties authLoginProperties;
 
     @PostMapping(value = "/login", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<JwtResponse> login(
             @RequestHeader(value = "x-auth-type") String authType,
-            @RequestBody LoginRequest loginRequest) {
+            @RequestBody LoginRequest loginRequest,
+            ServerHttpRequest request) {
 
         if (!ADMIN_AUTH_TYPE.equals(authType)) {
             return Mono.error(new RuntimeException("Header x-auth-type deve ser ADMIN"));
         }
 
-        return authService.authenticate(loginRequest);
+        return authService.authenticate(loginRequest, origem(request));
+    }
+
+    // Vinda de um proxy confiável, a origem é o último endereço do X-Forwarded-For que não é de outro proxy
+    // confiável: os anteriores foram escritos pelo próprio cliente e não servem para limitar tentativas
+    String origem(ServerHttpRequest request) {
+        InetSocketAddress remoto = request.getRemoteAddress();
+        if (remoto == null || remoto.getAddress() == null) {
+            return "desconhecida";
+        }
+        String origem = remoto.getAddress().getHostAddress();
+        List<String> proxies = authLoginProperties.getTrustedProxies();
+        if (!proxies.contains(origem)) {
+            return origem;
+        }
+        List<String> encaminhados = request.getHeaders().getOrEmpty("X-Forwarded-For").stream()
+                .flatMap(valor -> Arrays.stream(valor.split(",")))
+                .map(String::trim)
+                .filter(endereco -> !endereco.isEmpty())
+                .toList();
+        for (int i = encaminhados.size() - 1; i >= 0; i--) {
+            origem = encaminhados.get(i);
+            if (!proxies.contains(origem)) {
+                break;
+            }
+        }
+        return origem;
     }
 }
@@ -0,0 +1,63 @@
+package br.olx.crawler.controller;
+
+import br.olx.crawler.dto.CrawlJobRequest;
+import br.olx.crawler.entity.CrawlJob;
+import br.olx.crawler.service.CrawlJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+@RestController
+@RequestMapping("/api/v1/crawler/jobs")
+@Tag(name = "Jobs", description = "Execução assíncrona de crawlers e envios")
+@RequiredArgsConstructor
+public class CrawlJobController {
+
+    private final CrawlJobService crawlJobService;
+
+    @Operation(summary = "Submeter job",
+            description = "Agenda uma busca de produtos (PRODUTOS), o envio do e-mail de resumo (EMAIL) ou o envio via WhatsApp (WHATSAPP) " +
+                    "e retorna o job na hora, com status 202. Retorna 429 se a fila de jobs estiver cheia.")
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<CrawlJob>> submit(@RequestBody CrawlJobRequest request) {
+        if (request.getTipo() == null) {
+            return Mono.error(new IllegalArgumentException("tipo é obrigatório"));
+        }
+
+        if (request.getTipo() == CrawlJob.Tipo.PRODUTOS) {
+            String erro = OlxCrawlerController.validarBusca(request.getTerm(), request.getMaxPages());
+            if (erro != null) {
+                return Mono.error(new IllegalArgumentException(erro));
+            }
+            if (request.getDeadlineSeconds() <= 0 || request.getDeadlineSeconds() > 300) {
+                return Mono.error(new IllegalArgumentException("deadlineSeconds deve estar entre 1 e 300"));
+            }
+        }
+
+        return crawlJobService.submeter(request)
+                .map(job -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .location(URI.create("/api/v1/crawler/jobs/" + job.getId()))
+                        .body(job));
+    }
+
+    @Operation(summary = "Consultar job", description = "Status, datas e, para jobs PRODUTOS concluídos, os produtos encontrados")
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<CrawlJob> status(@PathVariable String id) {
+        return crawlJobService.buscar(id);
+    }
+}
@@ -1,7 +1,9 @@
 package br.olx.crawler.controller;
 
 import br.olx.crawler.controller.docs.OlxCrawlerApi;
+import br.olx.crawler.dto.CrawlEvent;
 import br.olx.crawler.dto.Produto;
+import br.olx.crawler.dto.ResultadoImportacaoLink;
 import br.olx.crawler.service.CrawlerScheduledService;
 import br.olx.crawler.service.LinkService;
 import br.olx.crawler.service.OlxCrawlerService;
@@ -19,8 +21,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -29,6 +33,9 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OlxCrawlerController implements OlxCrawlerApi {
 
+    private static final String CRAWL_COMPLETE_HEADER = "X-Crawl-Complete";
+    private static final String CRAWL_PAGES_HEADER = "X-Crawl-Pages";
+
     private final OlxCrawlerService olxCrawlerService;
     private final LinkService linkService;
     private final CrawlerScheduledService crawlerScheduledService;
@@ -36,19 +43,51 @@ public class OlxCrawlerController implements OlxCrawlerApi {
     @Override
     @GetMapping(value = "/produtos", produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasRole('ADMIN')")
-    public Mono<List<Produto>> lookForProducts(
+    public Mono<ResponseEntity<List<Produto>>> lookForProducts(
+            @RequestParam(value = "term", defaultValue = "tracer") String term,
+            @RequestParam(value = "maxPages", defaultValue = "10") Integer maxPages,
+            @RequestParam(value = "deadlineSeconds", defaultValue = "300") Integer deadlineSeconds) {
+
+        String erro = validarBusca(term, maxPages);
+        if (erro != null) {
+            return Mono.error(new IllegalArgumentException(erro));
+        }
+
+        if (deadlineSeconds <= 0 || deadlineSeconds > 300) {
+            return Mono.error(new IllegalArgumentException("deadlineSeconds deve estar entre 1 e 300"));
+        }
+
+        return olxCrawlerService.lookForProducts(term.trim(), maxPages, Duration.ofSeconds(deadlineSeconds))
+                .map(resultado -> ResponseEntity.ok()
+                        .header(CRAWL_COMPLETE_HEADER, String.valueOf(resultado.isCompleto()))
+                        .header(CRAWL_PAGES_HEADER, String.valueOf(resultado.getPaginasPercorridas()))
+                        .body(resultado.getProdutos()));
+    }
+
+    @Override
+    @GetMapping(value = "/produtos/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<CrawlEvent> streamProducts(
             @RequestParam(value = "term", defaultValue = "tracer") String term,
             @RequestParam(value = "maxPages", defaultValue = "10") Integer maxPages) {
 
+        String erro = validarBusca(term, maxPages);
+        if (erro != null) {
+            return Flux.error(new IllegalArgumentException(erro));
+        }
+
+        return olxCrawlerService.streamProducts(term.trim(), maxPages);
+    }
+
+    static String validarBusca(String term, Integer maxPages) {
         if (maxPages <= 0 || maxPages > 50) {
-            return Mono.error(new IllegalArgumentException("maxPages deve estar entre 1 e 50"));
+            return "maxPages deve estar entre 1 e 50";
         }
 
         if (term == null || term.trim().isEmpty()) {
-            return Mono.error(new IllegalArgumentException("term não pode estar vazio"));
+            return "term não pode estar vazio";
         }
-
-        return olxCrawlerService.lookForProducts(term.trim(), maxPages);
+        return null;
     }
 
     @Override
@@ -67,11 +106,21 @@ public class OlxCrawlerController implements OlxCrawlerApi {
                 );
     }
 
+    // Corpo em NDJSON, uma URL por linha (string JSON ou objeto com uri, term e enabled); responde uma linha por entrada
+    @PostMapping(value = "/links/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<ResultadoImportacaoLink> importLinks(@RequestBody Flux<String> linhas) {
+        return linkService.importar(linhas);
+    }
+
     @GetMapping(value = "/send-mail", produces = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasRole('ADMIN')")
     public Mono<ResponseEntity<String>> sendTestEmail() {
         return crawlerScheduledService.run()
                 .thenReturn(ResponseEntity.ok().body("E-mail de teste enviado com sucesso"))
+                .onErrorResume(ResponseStatusException.class, ex ->
+                        Mono.just(ResponseEntity.status(ex.getStatusCode()).body(ex.getReason()))
+                )
                 .onErrorResume(e ->
                         Mono.just(ResponseEntity.status(500).body("Erro ao enviar e-mail de teste: " + e.getMessage()))
                 );
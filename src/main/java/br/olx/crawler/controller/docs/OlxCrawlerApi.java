@@ -1,5 +1,6 @@
 package br.olx.crawler.controller.docs;
 
+import br.olx.crawler.dto.CrawlEvent;
 import br.olx.crawler.dto.Produto;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,6 +10,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -22,7 +24,9 @@ public interface OlxCrawlerApi {
 
     @Operation(
             summary = "Buscar produtos no OLX",
-            description = "Realiza crawling no site OLX para buscar produtos.",
+            description = "Realiza crawling no site OLX para buscar produtos dentro do prazo informado. " +
+                    "Se o prazo acabar antes da última página, devolve os melhores produtos encontrados até então " +
+                    "com o cabeçalho X-Crawl-Complete: false; X-Crawl-Pages informa quantas páginas foram lidas.",
             tags = {"Crawling", "Produtos"}
     )
     @ApiResponses(value = {
@@ -43,14 +47,6 @@ public interface OlxCrawlerApi {
                             schema = @Schema(example = "{'error': 'maxPages deve estar entre 1 e 50'}")
                     )
             ),
-            @ApiResponse(
-                    responseCode = "408",
-                    description = "Timeout - operação excedeu 5 minutos",
-                    content = @Content(
-                            mediaType = "application/json",
-                            schema = @Schema(example = "{'error': 'Operação excedeu tempo limite'}")
-                    )
-            ),
             @ApiResponse(
                     responseCode = "500",
                     description = "Erro interno do servidor durante o crawling",
@@ -68,7 +64,7 @@ public interface OlxCrawlerApi {
                     )
             )
     })
-    Mono<List<Produto>> lookForProducts(
+    Mono<ResponseEntity<List<Produto>>> lookForProducts(
             @Parameter(
                     description = "Termo de busca para filtrar produtos. " +
                             "Busca case-insensitive no título dos produtos.",
@@ -84,7 +80,63 @@ public interface OlxCrawlerApi {
                     example = "5",
                     required = false,
                     schema = @Schema(minimum = "1", maximum = "50")
-            ) @RequestParam(value = "maxPages", defaultValue = "20") Integer maxPages
+            ) @RequestParam(value = "maxPages", defaultValue = "20") Integer maxPages,
+
+            @Parameter(
+                    description = "Prazo da busca em segundos (entre 1 e 300). " +
+                            "As páginas são planejadas pela latência medida e pelo intervalo entre requisições ao OLX.",
+                    example = "60",
+                    required = false,
+                    schema = @Schema(minimum = "1", maximum = "300")
+            ) @RequestParam(value = "deadlineSeconds", defaultValue = "300") Integer deadlineSeconds
+    );
+
+    @Operation(
+            summary = "Buscar produtos no OLX em streaming",
+            description = "Mesma busca de /produtos, mas emite cada produto assim que sua página é processada, " +
+                    "em application/x-ndjson ou text/event-stream. Após os produtos de cada página vem um evento " +
+                    "PAGINA com o progresso, e a busca termina com um evento FIM. Fechar a conexão interrompe o crawling.",
+            tags = {"Crawling", "Produtos"}
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Sequência de eventos PRODUTO, PAGINA e FIM",
+                    content = {
+                            @Content(
+                                    mediaType = "application/x-ndjson",
+                                    schema = @Schema(implementation = CrawlEvent.class)
+                            ),
+                            @Content(
+                                    mediaType = "text/event-stream",
+                                    schema = @Schema(implementation = CrawlEvent.class)
+                            )
+                    }
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Parâmetros inválidos fornecidos",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(example = "{'error': 'maxPages deve estar entre 1 e 50'}")
+                    )
+            )
+    })
+    Flux<CrawlEvent> streamProducts(
+            @Parameter(
+                    description = "Termo de busca para filtrar produtos. " +
+                            "Busca case-insensitive no título dos produtos.",
+                    example = "tracer",
+                    required = false,
+                    schema = @Schema(minLength = 1, maxLength = 50)
+            ) @RequestParam(value = "term", defaultValue = "tracer") String term,
+
+            @Parameter(
+                    description = "Número máximo de páginas a serem percorridas (entre 1 e 50).",
+                    example = "5",
+                    required = false,
+                    schema = @Schema(minimum = "1", maximum = "50")
+            ) @RequestParam(value = "maxPages", defaultValue = "10") Integer maxPages
     );
 
     @Operation(
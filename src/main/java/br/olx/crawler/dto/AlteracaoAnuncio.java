@@ -0,0 +1,27 @@
+package br.olx.crawler.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class AlteracaoAnuncio {
+
+    public enum Tipo {
+        NOVO, PRECO_CAIU, PRECO_SUBIU, REMOVIDO
+    }
+
+    private Tipo tipo;
+    private Produto produto;
+    // Preço da visita anterior; nulo para anúncios novos
+    private String precoAnterior;
+
+    public String descricao() {
+        return switch (tipo) {
+            case NOVO -> "🆕 Novo";
+            case PRECO_CAIU -> "📉 Preço caiu (antes " + precoAnterior + ")";
+            case PRECO_SUBIU -> "📈 Preço subiu (antes " + precoAnterior + ")";
+            case REMOVIDO -> "❌ Removido";
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package br.olx.crawler.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Evento do crawler em streaming: um produto encontrado, o progresso de uma página ou o fim da busca")
+public class CrawlEvent {
+
+    public enum Tipo {
+        PRODUTO, PAGINA, FIM
+    }
+
+    @Schema(description = "Tipo do evento", example = "PRODUTO")
+    private Tipo tipo;
+
+    @Schema(description = "Produto encontrado; presente só em eventos PRODUTO")
+    private Produto produto;
+
+    @Schema(description = "Página concluída; presente só em eventos PAGINA", example = "2")
+    private Integer pagina;
+
+    @Schema(description = "Produtos novos na página (PAGINA) ou no total da busca (FIM)", example = "48")
+    private Integer produtos;
+
+    public static CrawlEvent produto(Produto produto) {
+        return new CrawlEvent(Tipo.PRODUTO, produto, null, null);
+    }
+
+    public static CrawlEvent pagina(int pagina, int produtos) {
+        return new CrawlEvent(Tipo.PAGINA, null, pagina, produtos);
+    }
+
+    public static CrawlEvent fim(int produtos) {
+        return new CrawlEvent(Tipo.FIM, null, null, produtos);
+    }
+}
@@ -0,0 +1,24 @@
+package br.olx.crawler.dto;
+
+import br.olx.crawler.entity.CrawlJob;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@Schema(description = "Submissão de um job de crawler")
+public class CrawlJobRequest {
+
+    @Schema(description = "O que o job executa: busca de produtos, envio de e-mail ou envio via WhatsApp", example = "PRODUTOS")
+    private CrawlJob.Tipo tipo;
+
+    @Schema(description = "Termo de busca (jobs PRODUTOS)", example = "tracer")
+    private String term = "tracer";
+
+    @Schema(description = "Número máximo de páginas, entre 1 e 50 (jobs PRODUTOS)", example = "10")
+    private Integer maxPages = 10;
+
+    @Schema(description = "Prazo da busca em segundos, entre 1 e 300 (jobs PRODUTOS)", example = "300")
+    private Integer deadlineSeconds = 300;
+}
@@ -0,0 +1,18 @@
+package br.olx.crawler.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class EstadoHost {
+    private String host;
+    private double taxaPorSegundo;
+    private long intervaloMs;
+    private long requisicoes;
+    private long sucessos;
+    private long bloqueios;
+    private Instant ultimoBloqueio;
+}
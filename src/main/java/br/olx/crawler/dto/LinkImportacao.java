@@ -0,0 +1,22 @@
+package br.olx.crawler.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Schema(description = "Uma linha da importação de links em NDJSON; a linha também pode ser só a URL entre aspas")
+public class LinkImportacao {
+
+    @Schema(description = "URL de busca da OLX", example = "https://www.olx.com.br/autos-e-pecas/motos?q=tracer&sf=1")
+    private String uri;
+
+    @Schema(description = "Termo associado ao link", example = "tracer")
+    private String term;
+
+    @Schema(description = "Se o link entra nas execuções do crawler", example = "true")
+    private boolean enabled = true;
+}
@@ -20,12 +20,16 @@ public class Produto {
     @Schema(description = "URL da imagem do produto", example = "https://img.olx.com.br/images/...")
     private final String imagem;
 
+    @Schema(description = "Identificador do anúncio no OLX, extraído do link", example = "1234567890")
+    private final String anuncioId;
+
     public Produto(String titulo, String preco, String link, String imagem) {
         this.titulo = titulo;
         this.preco = preco;
         this.link = link;
         this.imagem = imagem;
         this.precoNumerico = extrairPreco(preco);
+        this.anuncioId = extrairAnuncioId(link);
     }
 
     public String getTitulo() {
@@ -48,6 +52,10 @@ public class Produto {
         return imagem;
     }
 
+    public String getAnuncioId() {
+        return anuncioId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -76,6 +84,19 @@ public class Produto {
         }
     }
 
+    // Links do OLX terminam com o id numérico do anúncio (ex.: .../yamaha-mt-09-1234567890)
+    private String extrairAnuncioId(String link) {
+        if (link == null) {
+            return null;
+        }
+        String semParametros = link.split("[?#]", 2)[0];
+        String sufixo = semParametros.substring(semParametros.lastIndexOf('-') + 1);
+        if (!sufixo.isEmpty() && sufixo.chars().allMatch(Character::isDigit)) {
+            return sufixo;
+        }
+        return semParametros;
+    }
+
     @Override
     public String toString() {
         return "Título: " + titulo + "\n" +
@@ -0,0 +1,16 @@
+package br.olx.crawler.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ProdutosColetados {
+    private List<Produto> produtos;
+    // Páginas cujo download ou extração falhou (bloqueio, timeout, status inesperado); entram como vazias
+    private int paginasComFalha;
+    // true quando uma página baixada sem anúncios mostrou que a busca acabou antes do limite de páginas
+    private boolean fimDaPaginacao;
+}
@@ -0,0 +1,16 @@
+package br.olx.crawler.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ResultadoBusca {
+    private List<Produto> produtos;
+    // false quando o prazo acabou antes de a paginação chegar ao fim
+    private boolean completo;
+    private int paginasPercorridas;
+    private int paginasPlanejadas;
+}
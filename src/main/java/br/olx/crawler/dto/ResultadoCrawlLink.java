@@ -0,0 +1,20 @@
+package br.olx.crawler.dto;
+
+import br.olx.crawler.entity.Link;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ResultadoCrawlLink {
+    private Link link;
+    private List<Produto> produtos;
+    // true só quando um crawler completo baixou todas as páginas e chegou ao fim da paginação:
+    // apenas nesse caso um anúncio ausente pode ser dado como removido
+    private boolean completo;
+    private int paginasComFalha;
+    // Diferença em relação à visita anterior do link, preenchida depois do crawler
+    private List<AlteracaoAnuncio> alteracoes;
+}
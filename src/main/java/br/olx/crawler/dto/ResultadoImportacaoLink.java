@@ -0,0 +1,29 @@
+package br.olx.crawler.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Resultado da importação de uma linha do NDJSON de links")
+public class ResultadoImportacaoLink {
+
+    public enum Status {
+        CRIADO, DUPLICADO, INVALIDO, ERRO
+    }
+
+    @Schema(description = "Número da linha no corpo enviado, a partir de 1", example = "3")
+    private long linha;
+
+    @Schema(description = "URL canônica gravada ou comparada; ausente quando a linha não pôde ser lida")
+    private String uri;
+
+    @Schema(description = "O que aconteceu com a linha", example = "CRIADO")
+    private Status status;
+
+    @Schema(description = "Motivo quando a linha não foi criada")
+    private String mensagem;
+}
@@ -0,0 +1,15 @@
+package br.olx.crawler.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Resposta do POST /send-message da API de WhatsApp
+@Data
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class WhatsappResponse {
+    private boolean success;
+    private String message;
+    private String error;
+}
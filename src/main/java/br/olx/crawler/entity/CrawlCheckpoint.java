@@ -0,0 +1,31 @@
+package br.olx.crawler.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+// Uma página já buscada dentro de uma execução, para que a execução retomada não a busque de novo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "crawl_checkpoints")
+@CompoundIndex(name = "execucao_uri", def = "{'runId': 1, 'uri': 1, 'pagina': 1}", unique = true)
+public class CrawlCheckpoint {
+    @Id
+    private String id;
+    private String runId;
+    private String uri;
+    private int pagina;
+    private List<ProdutoEncontrado> produtos;
+    @Indexed(expireAfter = "#{@crawlerRunsProperties.retention}")
+    private Instant registradoEm;
+}
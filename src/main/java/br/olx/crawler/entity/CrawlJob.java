@@ -0,0 +1,51 @@
+package br.olx.crawler.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "crawl_jobs")
+@CompoundIndex(name = "status_heartbeat", def = "{'status': 1, 'heartbeatEm': 1}")
+public class CrawlJob {
+
+    public enum Tipo {
+        PRODUTOS, EMAIL, WHATSAPP
+    }
+
+    public enum Status {
+        PENDENTE, EXECUTANDO, CONCLUIDO, FALHOU
+    }
+
+    @Id
+    private String id;
+    private Tipo tipo;
+    private Status status;
+    // Parâmetros da busca; usados só por jobs PRODUTOS
+    private String term;
+    private Integer maxPages;
+    private Integer deadlineSeconds;
+    private List<ProdutoEncontrado> produtos;
+    // false quando a busca foi cortada pelo prazo
+    private Boolean completo;
+    private String erro;
+    // Instância que aceitou o job; só ela o executa e renova o heartbeat enquanto ele está em aberto
+    private String nodeId;
+    private Instant heartbeatEm;
+    private Instant criadoEm;
+    private Instant iniciadoEm;
+    // Jobs finalizados expiram pelo índice TTL; pendentes e em execução não têm a data e ficam
+    @Indexed(expireAfter = "#{@crawlerJobsProperties.retention}")
+    private Instant finalizadoEm;
+}
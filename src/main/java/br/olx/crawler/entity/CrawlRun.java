@@ -0,0 +1,49 @@
+package br.olx.crawler.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "crawl_runs")
+@CompoundIndex(name = "status_heartbeat", def = "{'status': 1, 'heartbeatEm': 1}")
+public class CrawlRun {
+
+    public enum Origem {
+        CRON, REVISITA, MANUAL
+    }
+
+    public enum Status {
+        EXECUTANDO, CONCLUIDA, FALHOU
+    }
+
+    @Id
+    private String id;
+    private Origem origem;
+    private Status status;
+    // Instância que executa (ou retomou) a execução
+    private String nodeId;
+    private List<String> linkIds;
+    private List<String> linksConcluidos;
+    private long paginas;
+    // Páginas que falharam, mais uma quando a execução inteira falha
+    private long falhas;
+    private int retomadas;
+    private String erro;
+    private Instant iniciadaEm;
+    private Instant heartbeatEm;
+    private Long duracaoMs;
+    @Indexed(expireAfter = "#{@crawlerRunsProperties.retention}")
+    private Instant finalizadaEm;
+}
@@ -7,17 +7,39 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 @Document(collection = "links")
+// Só os links ativos entram no índice: é o único valor consultado pelo crawler
+@CompoundIndexes({
+        @CompoundIndex(name = "links_ativos", def = "{'enabled': 1}", partialFilter = "{'enabled': true}")
+})
 public class Link {
     @Id
     private String id;
     private String uri;
+    // Forma canônica da uri (UriUtil.canonica); esparso porque links antigos podem não ter sido normalizados
+    @Indexed(unique = true, sparse = true)
+    private String uriCanonica;
     private String term;
     private boolean enabled;
+    // Ids dos anúncios já vistos, do mais recente para o mais antigo, usados pelo crawler incremental
+    private List<String> anunciosConhecidos;
+    private Instant ultimoCrawlCompleto;
+    // Execução do job agendado que reservou o link e a instância que a reservou
+    private String execucaoReservada;
+    private String reservadoPor;
+    // Agenda de revisita adaptativa; os limites, quando preenchidos, sobrescrevem os globais
+    private Instant proximaVisita;
+    private Long intervaloRevisitaMinutos;
+    private Long intervaloMinimoMinutos;
+    private Long intervaloMaximoMinutos;
 }
@@ -0,0 +1,52 @@
+package br.olx.crawler.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "listings")
+// Um documento por anúncio em cada link: o mesmo anúncio pode aparecer em buscas diferentes
+@CompoundIndex(name = "link_anuncio", def = "{'linkId': 1, 'anuncioId': 1}", unique = true)
+public class Listing {
+    @Id
+    private String id;
+    @Indexed
+    private String linkId;
+    // Id do anúncio no OLX (Produto.anuncioId)
+    private String anuncioId;
+    private String titulo;
+    private String preco;
+    // Nulo quando o preço não foi informado ou não pôde ser convertido
+    @Indexed
+    private Double precoNumerico;
+    private String link;
+    private String imagem;
+    private Instant primeiraVezVisto;
+    @Indexed
+    private Instant ultimaVezVisto;
+    // Preenchido quando um crawler completo do link não encontra mais o anúncio
+    private Instant removidoEm;
+    // Último estado do anúncio entregue em cada canal de notificação, por nome do canal
+    private Map<String, Entrega> entregas;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entrega {
+        private String preco;
+        private Double precoNumerico;
+        private boolean removido;
+    }
+}
@@ -0,0 +1,24 @@
+package br.olx.crawler.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "crawler_nodes")
+public class NodeLease {
+    // Identificador da instância da aplicação
+    @Id
+    private String id;
+    private Instant iniciadoEm;
+    // Leases abandonadas são apagadas pelo índice TTL bem depois de deixarem de contar como ativas
+    @Indexed(expireAfter = "1h")
+    private Instant heartbeatEm;
+}
@@ -0,0 +1,27 @@
+package br.olx.crawler.entity;
+
+import br.olx.crawler.dto.Produto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Produto tem campos derivados imutáveis; nos documentos fica esta cópia simples, que o Mongo consegue ler de volta
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProdutoEncontrado {
+    private String titulo;
+    private String preco;
+    private double precoNumerico;
+    private String link;
+    private String imagem;
+
+    public static ProdutoEncontrado de(Produto produto) {
+        return new ProdutoEncontrado(produto.getTitulo(), produto.getPreco(), produto.getPrecoNumerico(),
+                produto.getLink(), produto.getImagem());
+    }
+
+    public Produto paraProduto() {
+        return new Produto(titulo, preco, link, imagem);
+    }
+}
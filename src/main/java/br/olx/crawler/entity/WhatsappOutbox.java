@@ -0,0 +1,39 @@
+package br.olx.crawler.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Mensagem de WhatsApp cujo envio falhou e aguarda nova tentativa
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "whatsapp_outbox")
+@CompoundIndex(name = "status_proxima_tentativa", def = "{'status': 1, 'proximaTentativa': 1}")
+public class WhatsappOutbox {
+
+    public enum Status {
+        PENDENTE, ENVIADA, DESCARTADA
+    }
+
+    @Id
+    private String id;
+    private String numero;
+    private String mensagem;
+    private Status status;
+    private int tentativas;
+    private Instant proximaTentativa;
+    private String ultimoErro;
+    private Instant criadaEm;
+    // Mensagens enviadas ou descartadas somem depois de uma semana
+    @Indexed(expireAfter = "7d")
+    private Instant finalizadaEm;
+}
@@ -0,0 +1,7 @@
+package br.olx.crawler.repository;
+
+import br.olx.crawler.entity.CrawlJob;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface CrawlJobRepository extends ReactiveMongoRepository<CrawlJob, String> {
+}
@@ -0,0 +1,10 @@
+package br.olx.crawler.repository;
+
+import br.olx.crawler.entity.Listing;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+public interface ListingRepository extends ReactiveMongoRepository<Listing, String> {
+    Flux<Listing> findByLinkId(String linkId);
+    Flux<Listing> findByLinkIdAndRemovidoEmIsNull(String linkId);
+}
@@ -1,35 +1,88 @@
 package br.olx.crawler.service;
 
+import br.olx.crawler.config.AuthLoginProperties;
 import br.olx.crawler.dto.JwtResponse;
 import br.olx.crawler.dto.LoginRequest;
 import br.olx.crawler.entity.User;
 import br.olx.crawler.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import br.olx.crawler.util.ReactiveSemaphore;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Login com a verificação BCrypt fora do event loop.
+ * Cada verificação custa dezenas de milissegundos de CPU: roda num pool próprio e limitado, com fila
+ * curta, e o excedente é recusado na hora com 503 em vez de se acumular. Falhas seguidas de um mesmo
+ * usuário e origem, ou falhas demais de uma origem com qualquer usuário, bloqueiam novas tentativas
+ * com 429 até o fim da janela, antes de chegar ao BCrypt. Um registro de falhas nunca é descartado
+ * antes do fim da sua janela, então alternar entre muitos usuários não apaga um bloqueio.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AuthService {
 
+    private record Tentativas(int falhas, long inicioJanelaNanos) {
+    }
+
     private final UserRepository userRepository;
     private final JwtService jwtService;
     private final PasswordEncoder passwordEncoder;
+    private final AuthLoginProperties properties;
+    private final Scheduler authScheduler;
+    private final ReactiveSemaphore verificacoes;
+    // Verificações de senha aceitas e ainda não terminadas, executando ou na fila
+    private final AtomicInteger emAberto = new AtomicInteger();
+    // Em ordem de início da janela: os registros encerrados saem sempre a partir do mais antigo
+    private final Map<String, Tentativas> tentativas = new LinkedHashMap<>();
+
+    public AuthService(UserRepository userRepository,
+                       JwtService jwtService,
+                       PasswordEncoder passwordEncoder,
+                       AuthLoginProperties properties) {
+        this.userRepository = userRepository;
+        this.jwtService = jwtService;
+        this.passwordEncoder = passwordEncoder;
+        this.properties = properties;
+        this.authScheduler = Schedulers.newParallel("auth", properties.getMaxConcurrent());
+        this.verificacoes = new ReactiveSemaphore(properties.getMaxConcurrent());
+    }
 
-    public Mono<JwtResponse> authenticate(LoginRequest loginRequest) {
-        return userRepository.findByUsername(loginRequest.getUsername())
-                .filter(user -> passwordEncoder.matches(loginRequest.getPassword(), user.getPassword()))
-                .filter(User::isEnabled)
-                .map(user -> {
-                    String token = jwtService.generateToken(user.getUsername(), user.getRoles());
-                    return new JwtResponse(token, user.getUsername(), user.getRoles());
-                })
-                .switchIfEmpty(Mono.error(new RuntimeException("Credenciais inválidas")));
+    public Mono<JwtResponse> authenticate(LoginRequest loginRequest, String origem) {
+        return Mono.defer(() -> {
+            String chave = "usuario|" + loginRequest.getUsername() + '|' + origem;
+            String chaveOrigem = "origem|" + origem;
+            if (bloqueado(chave, chaveOrigem)) {
+                log.warn("Login de {} a partir de {} recusado: muitas tentativas", loginRequest.getUsername(), origem);
+                return Mono.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Muitas tentativas de login, tente novamente mais tarde"));
+            }
+            return userRepository.findByUsername(loginRequest.getUsername())
+                    .flatMap(user -> senhaConfere(loginRequest.getPassword(), user.getPassword())
+                            .filter(Boolean::booleanValue)
+                            .map(confere -> user))
+                    .filter(User::isEnabled)
+                    .map(user -> {
+                        String token = jwtService.generateToken(user.getUsername(), user.getRoles());
+                        return new JwtResponse(token, user.getUsername(), user.getRoles());
+                    })
+                    .doOnNext(resposta -> limparFalhas(chave))
+                    .switchIfEmpty(Mono.defer(() -> {
+                        registrarFalha(chave, chaveOrigem);
+                        return Mono.error(new RuntimeException("Credenciais inválidas"));
+                    }));
+        });
     }
 
     public Mono<Void> initializeDefaultUser() {
@@ -49,4 +102,72 @@ public class AuthService {
                     return Mono.empty();
                 });
     }
+
+    @PreDestroy
+    public void encerrar() {
+        authScheduler.dispose();
+    }
+
+    private Mono<Boolean> senhaConfere(String senha, String hash) {
+        return Mono.defer(() -> {
+            if (emAberto.incrementAndGet() > properties.getMaxConcurrent() + properties.getMaxQueued()) {
+                emAberto.decrementAndGet();
+                return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Autenticação sobrecarregada, tente novamente em instantes"));
+            }
+            return verificacoes.withPermit(Mono.fromCallable(() -> passwordEncoder.matches(senha, hash))
+                            .subscribeOn(authScheduler))
+                    .doFinally(signal -> emAberto.decrementAndGet());
+        });
+    }
+
+    private synchronized boolean bloqueado(String chave, String chaveOrigem) {
+        descartarEncerradas();
+        if (falhas(chaveOrigem) >= properties.getMaxFailuresPerOrigin() || falhas(chave) >= properties.getMaxFailures()) {
+            return true;
+        }
+        // Sem espaço para registrar uma falha deste par, a tentativa é recusada em vez de descartar um registro vivo
+        int novos = (tentativas.containsKey(chave) ? 0 : 1) + (tentativas.containsKey(chaveOrigem) ? 0 : 1);
+        if (tentativas.size() + novos > properties.getMaxTrackedKeys()) {
+            log.warn("Limite de {} registros de falha de login atingido", properties.getMaxTrackedKeys());
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void registrarFalha(String chave, String chaveOrigem) {
+        contarFalha(chave);
+        contarFalha(chaveOrigem);
+    }
+
+    // Uma nova janela vai para o fim do mapa, mantendo a ordem por início da janela
+    private void contarFalha(String chave) {
+        Tentativas atual = tentativas.get(chave);
+        if (atual == null || janelaEncerrada(atual)) {
+            tentativas.remove(chave);
+            tentativas.put(chave, new Tentativas(1, System.nanoTime()));
+        } else {
+            tentativas.put(chave, new Tentativas(atual.falhas() + 1, atual.inicioJanelaNanos()));
+        }
+    }
+
+    // Só o par usuário/origem é zerado; as falhas da origem seguem contando até o fim da janela
+    private synchronized void limparFalhas(String chave) {
+        tentativas.remove(chave);
+    }
+
+    private int falhas(String chave) {
+        Tentativas atual = tentativas.get(chave);
+        return atual == null || janelaEncerrada(atual) ? 0 : atual.falhas();
+    }
+
+    private void descartarEncerradas() {
+        Iterator<Tentativas> registros = tentativas.values().iterator();
+        while (registros.hasNext() && janelaEncerrada(registros.next())) {
+            registros.remove();
+        }
+    }
+
+    private boolean janelaEncerrada(Tentativas atual) {
+        return System.nanoTime() - atual.inicioJanelaNanos() > properties.getWindow().toNanos();
+    }
 }
@@ -0,0 +1,84 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.AlteracaoAnuncio;
+import br.olx.crawler.dto.Produto;
+import br.olx.crawler.dto.ResultadoCrawlLink;
+import br.olx.crawler.entity.Listing;
+import br.olx.crawler.repository.ListingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compara o resultado de um crawler com o último retrato do link em {@code listings} e classifica
+ * os anúncios em novos, com preço menor, com preço maior ou removidos. Deve rodar antes de o
+ * resultado ser gravado, pois lê o estado anterior.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChangeDetectionService {
+
+    private final ListingRepository listingRepository;
+    private final ListingService listingService;
+
+    public Mono<List<AlteracaoAnuncio>> detectar(ResultadoCrawlLink resultado) {
+        String linkId = resultado.getLink().getId();
+        if (linkId == null) {
+            return Mono.just(List.of());
+        }
+        return listingRepository.findByLinkIdAndRemovidoEmIsNull(linkId)
+                .collectMap(Listing::getAnuncioId)
+                .flatMap(anteriores -> {
+                    List<AlteracaoAnuncio> alteracoes = new ArrayList<>();
+                    Set<String> vistos = new HashSet<>();
+                    for (Produto produto : resultado.getProdutos()) {
+                        if (produto.getAnuncioId() == null || !vistos.add(produto.getAnuncioId())) {
+                            continue;
+                        }
+                        Listing anterior = anteriores.get(produto.getAnuncioId());
+                        AlteracaoAnuncio alteracao = comparar(produto, anterior);
+                        if (alteracao != null) {
+                            alteracoes.add(alteracao);
+                        }
+                    }
+
+                    // Só um crawler completo prova que um anúncio sumiu; o incremental não passa por todas as páginas.
+                    // Uma busca que de repente volta vazia parece mais um bloqueio do que o fim de todos os anúncios
+                    List<String> removidos = new ArrayList<>();
+                    if (resultado.isCompleto() && !resultado.getProdutos().isEmpty()) {
+                        anteriores.values().stream()
+                                .filter(anterior -> !vistos.contains(anterior.getAnuncioId()))
+                                .forEach(anterior -> {
+                                    removidos.add(anterior.getAnuncioId());
+                                    alteracoes.add(new AlteracaoAnuncio(AlteracaoAnuncio.Tipo.REMOVIDO,
+                                            new Produto(anterior.getTitulo(), anterior.getPreco(), anterior.getLink(), anterior.getImagem()),
+                                            anterior.getPreco()));
+                                });
+                    }
+
+                    log.info("Link {}: {} alterações desde a última visita", resultado.getLink().getUri(), alteracoes.size());
+                    return listingService.marcarRemovidos(linkId, removidos).thenReturn(alteracoes);
+                });
+    }
+
+    private static AlteracaoAnuncio comparar(Produto produto, Listing anterior) {
+        if (anterior == null) {
+            return new AlteracaoAnuncio(AlteracaoAnuncio.Tipo.NOVO, produto, null);
+        }
+        Double precoAtual = ListingService.precoNumerico(produto);
+        Double precoAnterior = anterior.getPrecoNumerico();
+        if (precoAtual == null || precoAnterior == null || precoAtual.equals(precoAnterior)) {
+            return null;
+        }
+        AlteracaoAnuncio.Tipo tipo = precoAtual < precoAnterior ? AlteracaoAnuncio.Tipo.PRECO_CAIU : AlteracaoAnuncio.Tipo.PRECO_SUBIU;
+        return new AlteracaoAnuncio(tipo, produto, anterior.getPreco());
+    }
+}
@@ -0,0 +1,19 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.Produto;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Checkpoints por página de uma execução do crawler, propagados pelo Context do Reactor
+ * (chave {@code CheckpointPaginas.class}) até a paginação em {@link OlxCrawlerService}.
+ */
+public interface CheckpointPaginas {
+
+    // Páginas já concluídas da URI, por número de página
+    Mono<SortedMap<Integer, List<Produto>>> paginasConcluidas(String uri);
+
+    Mono<Void> registrar(String uri, int pagina, List<Produto> produtos);
+}
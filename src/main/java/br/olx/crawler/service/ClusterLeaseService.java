@@ -0,0 +1,155 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerClusterProperties;
+import br.olx.crawler.entity.Link;
+import br.olx.crawler.entity.NodeLease;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Distribui os links do job agendado entre as instâncias da aplicação.
+ * Cada instância mantém uma lease em {@code crawler_nodes} renovada por heartbeat; a cada execução os
+ * links são repartidos entre as instâncias ativas por rendezvous hashing, de modo que a parte de uma
+ * instância que cai se espalha pelas demais. Antes de processar um link a instância o reserva para a
+ * execução com uma atualização atômica, e nenhuma outra instância processa o mesmo link na mesma execução.
+ */
+@Slf4j
+@Service
+public class ClusterLeaseService {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CrawlerClusterProperties properties;
+    private final String nodeId;
+    private final Instant iniciadoEm = Instant.now();
+
+    public ClusterLeaseService(ReactiveMongoTemplate mongoTemplate, CrawlerClusterProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+        this.nodeId = nomeDoHost() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Scheduled(fixedDelayString = "#{@crawlerClusterProperties.heartbeatInterval.toMillis()}")
+    public void heartbeat() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        renovarLease()
+                .doOnError(e -> log.warn("Falha ao renovar a lease da instância {}: {}", nodeId, e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .subscribe();
+    }
+
+    // Saída limpa: a parte desta instância passa para as outras já na próxima execução
+    @PreDestroy
+    public void liberarLease() {
+        if (properties.isEnabled()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(nodeId)), NodeLease.class)
+                    .timeout(Duration.ofSeconds(5))
+                    .onErrorResume(e -> Mono.empty())
+                    .block();
+        }
+    }
+
+    /**
+     * Filtra os links que cabem a esta instância na execução informada e os reserva.
+     * A execução identifica o disparo do job (o mesmo em todas as instâncias), ex.: o minuto do cron.
+     */
+    public Flux<Link> linksDesteNo(Flux<Link> links, String execucao) {
+        if (!properties.isEnabled()) {
+            return links;
+        }
+        return renovarLease()
+                .then(nosAtivos())
+                .doOnNext(nos -> log.info("Execução {}: {} instâncias ativas {}", execucao, nos.size(), nos))
+                .flatMapMany(nos -> links.filter(link -> nodeId.equals(dono(link.getId(), nos))))
+                .concatMap(link -> reservar(link, execucao));
+    }
+
+    private Mono<NodeLease> renovarLease() {
+        Query query = Query.query(Criteria.where("_id").is(nodeId));
+        Update update = new Update()
+                .set("heartbeatEm", Instant.now())
+                .setOnInsert("iniciadoEm", iniciadoEm);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().upsert(true).returnNew(true), NodeLease.class);
+    }
+
+    private Mono<List<String>> nosAtivos() {
+        Query query = Query.query(Criteria.where("heartbeatEm").gte(Instant.now().minus(properties.getLeaseTtl())));
+        return mongoTemplate.find(query, NodeLease.class)
+                .map(NodeLease::getId)
+                .concatWithValues(nodeId)
+                .distinct()
+                .sort(Comparator.naturalOrder())
+                .collectList();
+    }
+
+    // Só uma instância consegue gravar a execução no link; as demais recebem vazio
+    private Mono<Link> reservar(Link link, String execucao) {
+        Query query = Query.query(Criteria.where("_id").is(link.getId()).and("execucaoReservada").ne(execucao));
+        Update update = new Update()
+                .set("execucaoReservada", execucao)
+                .set("reservadoPor", nodeId);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Link.class)
+                .switchIfEmpty(Mono.fromRunnable(() ->
+                        log.info("Link {} já reservado por outra instância na execução {}", link.getUri(), execucao)));
+    }
+
+    // Rendezvous hashing: o dono é a instância de maior peso para o link
+    private static String dono(String linkId, List<String> nos) {
+        String dono = null;
+        long maiorPeso = Long.MIN_VALUE;
+        for (String no : nos) {
+            long peso = peso(no + '\n' + linkId);
+            if (dono == null || peso > maiorPeso) {
+                dono = no;
+                maiorPeso = peso;
+            }
+        }
+        return dono;
+    }
+
+    // FNV-1a de 64 bits seguido da finalização do MurmurHash3 para espalhar bem chaves parecidas
+    private static long peso(String chave) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : chave.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static String nomeDoHost() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "crawler";
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package br.olx.crawler.service;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Corpo de uma página lido à medida que os pedaços chegam da rede: gzip/deflate passam por um
+ * {@link Inflater} incremental e os bytes vão direto para o decodificador do charset, com buffers
+ * fixos, sem guardar o corpo comprimido nem o descomprimido inteiros. A leitura para, cancelando o
+ * resto da resposta, quando o texto atinge o limite de bytes ou, se pedido, logo que o estado embutido
+ * da página (de onde o {@link ProdutoExtractor} lê os anúncios) termina e já traz anúncios; sem eles,
+ * o corpo é lido até o fim para o scanner de tags.
+ */
+final class CorpoPaginaSubscriber implements HttpResponse.BodySubscriber<String> {
+
+    record Contadores(Counter recebidos, Counter decodificados, Counter cortadosNoLimite, Counter encerradosNoEstado) {
+    }
+
+    private enum Codificacao {
+        IDENTIDADE, GZIP, DEFLATE;
+
+        static Codificacao de(String contentEncoding) {
+            return switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+                case "", "identity" -> IDENTIDADE;
+                case "gzip", "x-gzip" -> GZIP;
+                case "deflate" -> DEFLATE;
+                default -> null;
+            };
+        }
+    }
+
+    private static final int TAMANHO_BUFFER = 16 * 1024;
+    private static final int TAMANHO_TRAILER_GZIP = 8;
+    private static final int GZIP_FHCRC = 2;
+    private static final int GZIP_FEXTRA = 4;
+    private static final int GZIP_FNAME = 8;
+    private static final int GZIP_FCOMMENT = 16;
+
+    private final String contentEncoding;
+    private final Codificacao codificacao;
+    private final CharsetDecoder decoder;
+    private final long limiteBytes;
+    // Decide, com o texto lido até o fim do estado embutido, se a leitura pode parar ali; null nunca para
+    private final Predicate<String> estadoBasta;
+    private final Contadores contadores;
+    private final CompletableFuture<String> corpo = new CompletableFuture<>();
+
+    // O texto fica em partes do tamanho do buffer de caracteres, juntadas uma única vez no fim: um
+    // StringBuilder cresceria copiando o conteúdo inteiro a cada dobra de capacidade
+    private final List<String> partes = new ArrayList<>();
+    private final ByteBuffer inflados = ByteBuffer.allocate(TAMANHO_BUFFER);
+    // Bytes já descomprimidos aguardando o decodificador; sobra aqui o fim de um caractere multibyte partido
+    private final ByteBuffer bytesPendentes = ByteBuffer.allocate(TAMANHO_BUFFER);
+    private final CharBuffer caracteres = CharBuffer.allocate(TAMANHO_BUFFER);
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer trailerGzip = ByteBuffer.allocate(TAMANHO_TRAILER_GZIP);
+
+    private Flow.Subscription subscription;
+    private Inflater inflater;
+    // Bytes iniciais guardados até dar para reconhecer o cabeçalho gzip ou zlib
+    private byte[] cabecalho = new byte[0];
+    private long decodificados;
+    private boolean estadoIniciado;
+    private boolean estadoVerificado;
+    // Fim da parte anterior, para achar um marcador partido entre duas partes
+    private String cauda = "";
+    private boolean encerrado;
+
+    CorpoPaginaSubscriber(String contentEncoding, Charset charset, long limiteBytes, Predicate<String> estadoBasta, Contadores contadores) {
+        this.contentEncoding = contentEncoding;
+        this.codificacao = Codificacao.de(contentEncoding);
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.limiteBytes = limiteBytes;
+        this.estadoBasta = estadoBasta;
+        this.contadores = contadores;
+    }
+
+    @Override
+    public CompletionStage<String> getBody() {
+        return corpo;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (codificacao == null) {
+            falhar(new IOException("Content-Encoding não suportado: " + contentEncoding));
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> itens) {
+        if (encerrado) {
+            return;
+        }
+        try {
+            for (ByteBuffer item : itens) {
+                contadores.recebidos().increment(item.remaining());
+                receber(item);
+                if (encerrado) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            falhar(e);
+            return;
+        }
+        if (encerrado) {
+            subscription.cancel();
+            concluir();
+        } else {
+            subscription.request(1);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (!encerrado) {
+            encerrado = true;
+            liberarInflater();
+            corpo.completeExceptionally(throwable);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (encerrado) {
+            return;
+        }
+        try {
+            validarFimComprimido();
+        } catch (IOException e) {
+            falhar(e);
+            return;
+        }
+        encerrado = true;
+        concluir();
+    }
+
+    private void receber(ByteBuffer item) throws IOException {
+        if (codificacao == Codificacao.IDENTIDADE) {
+            decodificar(item);
+            return;
+        }
+        ByteBuffer comprimido = item;
+        if (inflater == null) {
+            comprimido = aposCabecalho(item);
+            if (comprimido == null) {
+                return;
+            }
+        }
+        if (inflater.finished()) {
+            guardarTrailer(comprimido);
+        } else {
+            inflar(comprimido);
+        }
+    }
+
+    // Acumula o começo do corpo até reconhecer o formato; devolve os bytes a inflar ou null se ainda faltam
+    private ByteBuffer aposCabecalho(ByteBuffer item) throws IOException {
+        int anterior = cabecalho.length;
+        cabecalho = Arrays.copyOf(cabecalho, anterior + item.remaining());
+        item.get(cabecalho, anterior, item.remaining());
+
+        ByteBuffer restante;
+        if (codificacao == Codificacao.GZIP) {
+            int tamanho = tamanhoCabecalhoGzip(cabecalho);
+            if (tamanho < 0) {
+                return null;
+            }
+            inflater = new Inflater(true);
+            restante = ByteBuffer.wrap(cabecalho, tamanho, cabecalho.length - tamanho);
+        } else {
+            if (cabecalho.length < 2) {
+                return null;
+            }
+            // Alguns servidores mandam deflate "cru", sem o cabeçalho zlib exigido pela especificação
+            inflater = new Inflater(!temCabecalhoZlib(cabecalho));
+            restante = ByteBuffer.wrap(cabecalho);
+        }
+        cabecalho = null;
+        return restante;
+    }
+
+    private void inflar(ByteBuffer comprimido) throws IOException {
+        inflater.setInput(comprimido);
+        while (!encerrado) {
+            inflados.clear();
+            int tamanho;
+            try {
+                tamanho = inflater.inflate(inflados);
+            } catch (DataFormatException e) {
+                throw new IOException("Falha ao descomprimir resposta: " + e.getMessage(), e);
+            }
+            inflados.flip();
+            if (tamanho > 0) {
+                crc.update(inflados.duplicate());
+                decodificar(inflados);
+            }
+            if (inflater.finished()) {
+                guardarTrailer(comprimido);
+                return;
+            }
+            if (tamanho == 0) {
+                if (inflater.needsDictionary()) {
+                    throw new IOException("Falha ao descomprimir resposta: dicionário deflate não suportado");
+                }
+                // Sem saída e sem fim: toda a entrada deste pedaço já foi consumida
+                return;
+            }
+        }
+    }
+
+    private void guardarTrailer(ByteBuffer resto) {
+        if (codificacao == Codificacao.GZIP && trailerGzip.hasRemaining() && resto.hasRemaining()) {
+            ByteBuffer parte = resto.slice();
+            parte.limit(Math.min(parte.remaining(), trailerGzip.remaining()));
+            trailerGzip.put(parte);
+        }
+        resto.position(resto.limit());
+    }
+
+    // Só o que cabe no limite é decodificado; o excedente encerra a leitura
+    private void decodificar(ByteBuffer bytes) {
+        long permitidos = limiteBytes - decodificados;
+        boolean cortar = bytes.remaining() > permitidos;
+        if (cortar) {
+            bytes.limit(bytes.position() + (int) permitidos);
+        }
+        decodificados += bytes.remaining();
+        contadores.decodificados().increment(bytes.remaining());
+
+        while (bytes.hasRemaining() && !encerrado) {
+            ByteBuffer parte = bytes.slice();
+            parte.limit(Math.min(parte.remaining(), bytesPendentes.remaining()));
+            bytes.position(bytes.position() + parte.remaining());
+            bytesPendentes.put(parte);
+            bytesPendentes.flip();
+            decodificarPendentes(false);
+            bytesPendentes.compact();
+        }
+
+        if (cortar && !encerrado) {
+            encerrado = true;
+            contadores.cortadosNoLimite().increment();
+        }
+    }
+
+    // Os caracteres só viram uma parte quando o buffer enche, e no fim da leitura
+    private void decodificarPendentes(boolean fimDaEntrada) {
+        while (decoder.decode(bytesPendentes, caracteres, fimDaEntrada).isOverflow()) {
+            descarregarCaracteres();
+        }
+    }
+
+    private void descarregarCaracteres() {
+        caracteres.flip();
+        if (caracteres.hasRemaining()) {
+            String parte = caracteres.toString();
+            partes.add(parte);
+            if (estadoBasta != null && !estadoVerificado && !encerrado && estadoDaPaginaEncerrado(parte)) {
+                verificarEstado();
+            }
+        }
+        caracteres.clear();
+    }
+
+    // O texto lido até aqui vira uma parte só, reaproveitada no fim, para o estado ser avaliado inteiro
+    private void verificarEstado() {
+        estadoVerificado = true;
+        String lido = String.join("", partes);
+        partes.clear();
+        partes.add(lido);
+        if (estadoBasta.test(lido)) {
+            encerrado = true;
+            contadores.encerradosNoEstado().increment();
+        }
+    }
+
+    private boolean estadoDaPaginaEncerrado(String parte) {
+        int desde = 0;
+        if (!estadoIniciado) {
+            int aposMarcador = posicaoApos(parte, ProdutoExtractor.MARCADOR_ESTADO_PAGINA, 0);
+            if (aposMarcador < 0) {
+                guardarCauda(parte);
+                return false;
+            }
+            estadoIniciado = true;
+            desde = aposMarcador;
+        }
+        boolean encerrou = posicaoApos(parte, ProdutoExtractor.FIM_SCRIPT, desde) >= 0;
+        guardarCauda(parte);
+        return encerrou;
+    }
+
+    // Posição na parte logo depois do alvo; a partir do início, considera também o alvo começado na parte anterior
+    private int posicaoApos(String parte, String alvo, int desde) {
+        if (desde == 0 && !cauda.isEmpty()) {
+            String fronteira = cauda + parte.substring(0, Math.min(parte.length(), alvo.length() - 1));
+            int indice = fronteira.indexOf(alvo);
+            if (indice >= 0) {
+                return indice + alvo.length() - cauda.length();
+            }
+        }
+        int indice = parte.indexOf(alvo, desde);
+        return indice < 0 ? -1 : indice + alvo.length();
+    }
+
+    private void guardarCauda(String parte) {
+        int tamanho = Math.max(ProdutoExtractor.MARCADOR_ESTADO_PAGINA.length(), ProdutoExtractor.FIM_SCRIPT.length()) - 1;
+        cauda = parte.length() <= tamanho ? parte : parte.substring(parte.length() - tamanho);
+    }
+
+    // Corpo comprimido que acaba antes do fim do fluxo deflate, ou com o CRC errado, é uma resposta corrompida
+    private void validarFimComprimido() throws IOException {
+        if (codificacao == Codificacao.IDENTIDADE) {
+            return;
+        }
+        if (inflater == null) {
+            if (cabecalho.length > 0) {
+                throw new IOException("Corpo comprimido truncado no cabeçalho");
+            }
+            return;
+        }
+        if (!inflater.finished()) {
+            throw new IOException("Corpo comprimido truncado");
+        }
+        if (codificacao == Codificacao.GZIP) {
+            if (trailerGzip.hasRemaining()) {
+                throw new IOException("Corpo gzip sem trailer completo");
+            }
+            trailerGzip.flip();
+            long crcEsperado = Integer.toUnsignedLong(Integer.reverseBytes(trailerGzip.getInt()));
+            long tamanhoEsperado = Integer.toUnsignedLong(Integer.reverseBytes(trailerGzip.getInt()));
+            if (crcEsperado != crc.getValue() || tamanhoEsperado != (inflater.getBytesWritten() & 0xFFFFFFFFL)) {
+                throw new IOException("CRC do corpo gzip não confere");
+            }
+        }
+    }
+
+    private void concluir() {
+        liberarInflater();
+        bytesPendentes.flip();
+        decodificarPendentes(true);
+        while (decoder.flush(caracteres).isOverflow()) {
+            descarregarCaracteres();
+        }
+        descarregarCaracteres();
+        corpo.complete(String.join("", partes));
+    }
+
+    private void falhar(IOException e) {
+        encerrado = true;
+        subscription.cancel();
+        liberarInflater();
+        corpo.completeExceptionally(e);
+    }
+
+    private void liberarInflater() {
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+    // Tamanho do cabeçalho gzip (RFC 1952), ou -1 se os bytes recebidos ainda não o contêm inteiro
+    private static int tamanhoCabecalhoGzip(byte[] bytes) throws IOException {
+        if (bytes.length < 10) {
+            return -1;
+        }
+        if ((bytes[0] & 0xFF) != 0x1f || (bytes[1] & 0xFF) != 0x8b || bytes[2] != 8) {
+            throw new IOException("Corpo gzip com cabeçalho inválido");
+        }
+        int flags = bytes[3] & 0xFF;
+        int posicao = 10;
+        if ((flags & GZIP_FEXTRA) != 0) {
+            if (bytes.length < posicao + 2) {
+                return -1;
+            }
+            posicao += 2 + ((bytes[posicao] & 0xFF) | (bytes[posicao + 1] & 0xFF) << 8);
+        }
+        if ((flags & GZIP_FNAME) != 0) {
+            posicao = fimDoTextoTerminadoEmZero(bytes, posicao);
+        }
+        if (posicao >= 0 && (flags & GZIP_FCOMMENT) != 0) {
+            posicao = fimDoTextoTerminadoEmZero(bytes, posicao);
+        }
+        if (posicao >= 0 && (flags & GZIP_FHCRC) != 0) {
+            posicao += 2;
+        }
+        return posicao < 0 || posicao > bytes.length ? -1 : posicao;
+    }
+
+    private static int fimDoTextoTerminadoEmZero(byte[] bytes, int inicio) {
+        for (int i = inicio; i < bytes.length; i++) {
+            if (bytes[i] == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean temCabecalhoZlib(byte[] corpo) {
+        int cmf = corpo[0] & 0xFF;
+        int flg = corpo[1] & 0xFF;
+        return (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    }
+}
@@ -0,0 +1,173 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerJobsProperties;
+import br.olx.crawler.dto.CrawlJobRequest;
+import br.olx.crawler.entity.CrawlJob;
+import br.olx.crawler.entity.ProdutoEncontrado;
+import br.olx.crawler.repository.CrawlJobRepository;
+import br.olx.crawler.util.ReactiveSemaphore;
+import com.mongodb.client.result.UpdateResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executa crawlers e envios em segundo plano: a submissão grava o job e retorna na hora, e o
+ * andamento e o resultado ficam em {@code crawl_jobs} para consulta posterior.
+ * No máximo {@code maxConcurrent} jobs executam ao mesmo tempo e {@code maxQueued} aguardam;
+ * além disso a submissão é recusada com 429.
+ * Cada job guarda a instância que o aceitou e um heartbeat renovado por ela enquanto ele está em
+ * aberto; só jobs sem heartbeat recente, cuja instância caiu ou reiniciou, são marcados como falhos.
+ */
+@Slf4j
+@Service
+public class CrawlJobService {
+
+    private final CrawlJobRepository crawlJobRepository;
+    private final OlxCrawlerService olxCrawlerService;
+    private final CrawlerScheduledService crawlerScheduledService;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ClusterLeaseService clusterLeaseService;
+    private final CrawlerJobsProperties properties;
+    private final ReactiveSemaphore execucoes;
+    // Jobs aceitos e ainda não finalizados, executando ou na fila
+    private final AtomicInteger emAberto = new AtomicInteger();
+    // Ids dos jobs em aberto nesta instância, cujo heartbeat ela renova
+    private final Set<String> jobsDesteNo = ConcurrentHashMap.newKeySet();
+
+    public CrawlJobService(CrawlJobRepository crawlJobRepository,
+                           OlxCrawlerService olxCrawlerService,
+                           CrawlerScheduledService crawlerScheduledService,
+                           ReactiveMongoTemplate mongoTemplate,
+                           ClusterLeaseService clusterLeaseService,
+                           CrawlerJobsProperties properties) {
+        this.crawlJobRepository = crawlJobRepository;
+        this.olxCrawlerService = olxCrawlerService;
+        this.crawlerScheduledService = crawlerScheduledService;
+        this.mongoTemplate = mongoTemplate;
+        this.clusterLeaseService = clusterLeaseService;
+        this.properties = properties;
+        this.execucoes = new ReactiveSemaphore(properties.getMaxConcurrent());
+    }
+
+    public Mono<CrawlJob> submeter(CrawlJobRequest request) {
+        return Mono.defer(() -> {
+            if (emAberto.incrementAndGet() > properties.getMaxConcurrent() + properties.getMaxQueued()) {
+                emAberto.decrementAndGet();
+                return Mono.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Fila de jobs cheia, tente novamente mais tarde"));
+            }
+            Instant agora = Instant.now();
+            CrawlJob job = CrawlJob.builder()
+                    .tipo(request.getTipo())
+                    .status(CrawlJob.Status.PENDENTE)
+                    .nodeId(clusterLeaseService.getNodeId())
+                    .criadoEm(agora)
+                    .heartbeatEm(agora)
+                    .build();
+            if (request.getTipo() == CrawlJob.Tipo.PRODUTOS) {
+                job.setTerm(request.getTerm().trim());
+                job.setMaxPages(request.getMaxPages());
+                job.setDeadlineSeconds(request.getDeadlineSeconds());
+            }
+            return crawlJobRepository.save(job)
+                    .doOnNext(salvo -> {
+                        jobsDesteNo.add(salvo.getId());
+                        execucoes.withPermit(executar(salvo))
+                                .doFinally(signal -> {
+                                    jobsDesteNo.remove(salvo.getId());
+                                    emAberto.decrementAndGet();
+                                })
+                                .subscribe();
+                    })
+                    .doOnError(e -> emAberto.decrementAndGet());
+        });
+    }
+
+    public Mono<CrawlJob> buscar(String id) {
+        return crawlJobRepository.findById(id)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Job não encontrado")));
+    }
+
+    @Scheduled(fixedDelayString = "#{@crawlerJobsProperties.heartbeatInterval.toMillis()}")
+    public void heartbeat() {
+        if (jobsDesteNo.isEmpty()) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("_id").in(List.copyOf(jobsDesteNo))
+                .and("status").in(CrawlJob.Status.PENDENTE, CrawlJob.Status.EXECUTANDO));
+        mongoTemplate.updateMulti(query, Update.update("heartbeatEm", Instant.now()), CrawlJob.class)
+                .doOnError(e -> log.warn("Falha no heartbeat dos jobs desta instância: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .subscribe();
+    }
+
+    // Jobs em aberto cuja instância caiu ou reiniciou nunca vão terminar; os das outras instâncias ativas continuam
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "#{@crawlerJobsProperties.staleAfter.toMillis()}")
+    public void encerrarJobsInterrompidos() {
+        Instant agora = Instant.now();
+        Query query = Query.query(Criteria.where("status").in(CrawlJob.Status.PENDENTE, CrawlJob.Status.EXECUTANDO)
+                .orOperator(Criteria.where("heartbeatEm").lt(agora.minus(properties.getStaleAfter())),
+                        Criteria.where("heartbeatEm").exists(false)));
+        Update update = new Update()
+                .set("status", CrawlJob.Status.FALHOU)
+                .set("erro", "Interrompido: a instância que executava o job parou")
+                .set("finalizadoEm", agora);
+        mongoTemplate.updateMulti(query, update, CrawlJob.class)
+                .map(UpdateResult::getModifiedCount)
+                .filter(total -> total > 0)
+                .subscribe(total -> log.warn("{} jobs sem heartbeat marcados como falhos", total),
+                        e -> log.error("Falha ao encerrar jobs interrompidos: {}", e.getMessage()));
+    }
+
+    private Mono<Void> executar(CrawlJob job) {
+        job.setStatus(CrawlJob.Status.EXECUTANDO);
+        job.setIniciadoEm(Instant.now());
+        // O save grava o documento inteiro; o heartbeat vai junto para não voltar ao valor da submissão
+        job.setHeartbeatEm(job.getIniciadoEm());
+        return crawlJobRepository.save(job)
+                .flatMap(emExecucao -> executarTipo(emExecucao).thenReturn(emExecucao))
+                .flatMap(concluido -> finalizar(concluido, CrawlJob.Status.CONCLUIDO, null))
+                .onErrorResume(e -> {
+                    log.error("Job {} ({}) falhou: {}", job.getId(), job.getTipo(), e.getMessage());
+                    return finalizar(job, CrawlJob.Status.FALHOU, e.getMessage());
+                })
+                .then();
+    }
+
+    private Mono<Void> executarTipo(CrawlJob job) {
+        return switch (job.getTipo()) {
+            case PRODUTOS -> olxCrawlerService.lookForProducts(job.getTerm(), job.getMaxPages(), Duration.ofSeconds(job.getDeadlineSeconds()))
+                    .doOnNext(resultado -> {
+                        job.setProdutos(resultado.getProdutos().stream().map(ProdutoEncontrado::de).toList());
+                        job.setCompleto(resultado.isCompleto());
+                    })
+                    .then();
+            case EMAIL -> crawlerScheduledService.run();
+            case WHATSAPP -> crawlerScheduledService.runWhatsappCrawler();
+        };
+    }
+
+    private Mono<CrawlJob> finalizar(CrawlJob job, CrawlJob.Status status, String erro) {
+        job.setStatus(status);
+        job.setErro(erro);
+        job.setFinalizadoEm(Instant.now());
+        return crawlJobRepository.save(job);
+    }
+}
@@ -0,0 +1,192 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerRunsProperties;
+import br.olx.crawler.dto.Produto;
+import br.olx.crawler.dto.ResultadoCrawlLink;
+import br.olx.crawler.entity.CrawlCheckpoint;
+import br.olx.crawler.entity.CrawlRun;
+import br.olx.crawler.entity.Link;
+import br.olx.crawler.entity.ProdutoEncontrado;
+import br.olx.crawler.repository.LinkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Registra cada execução do crawler em {@code crawl_runs}, com checkpoints por link e por página
+ * gravados durante a execução, e histórico de duração, páginas e falhas. Páginas que falharam
+ * entram na contagem de falhas e não viram checkpoint, para serem baixadas de novo numa retomada.
+ * Uma execução cujo heartbeat parou (reinício ou queda da instância) é retomada por qualquer
+ * instância a partir dos links pendentes e da última página concluída de cada um.
+ * Cada instância executa uma coisa por vez: um novo disparo com outra execução ativa é recusado.
+ */
+@Slf4j
+@Service
+public class CrawlRunService {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final LinkRepository linkRepository;
+    private final CrawlerEngineService crawlerEngineService;
+    private final ClusterLeaseService clusterLeaseService;
+    private final CrawlerRunsProperties properties;
+    private final AtomicReference<String> execucaoAtiva = new AtomicReference<>();
+
+    public CrawlRunService(ReactiveMongoTemplate mongoTemplate,
+                           LinkRepository linkRepository,
+                           CrawlerEngineService crawlerEngineService,
+                           ClusterLeaseService clusterLeaseService,
+                           CrawlerRunsProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.linkRepository = linkRepository;
+        this.crawlerEngineService = crawlerEngineService;
+        this.clusterLeaseService = clusterLeaseService;
+        this.properties = properties;
+    }
+
+    public Mono<List<ResultadoCrawlLink>> executar(CrawlRun.Origem origem, Flux<Link> links) {
+        return Mono.defer(() -> {
+            String reserva = "reservando";
+            if (!execucaoAtiva.compareAndSet(null, reserva)) {
+                log.warn("Disparo {} recusado: a execução {} ainda está em andamento", origem, execucaoAtiva.get());
+                return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "Já existe uma execução do crawler em andamento"));
+            }
+            return links.collectList()
+                    .flatMap(lista -> {
+                        Instant agora = Instant.now();
+                        CrawlRun execucao = CrawlRun.builder()
+                                .origem(origem)
+                                .status(CrawlRun.Status.EXECUTANDO)
+                                .nodeId(clusterLeaseService.getNodeId())
+                                .linkIds(lista.stream().map(Link::getId).toList())
+                                .linksConcluidos(new ArrayList<>())
+                                .iniciadaEm(agora)
+                                .heartbeatEm(agora)
+                                .build();
+                        return mongoTemplate.insert(execucao)
+                                .doOnNext(salva -> execucaoAtiva.set(salva.getId()))
+                                .flatMap(salva -> processar(salva, lista));
+                    })
+                    .doFinally(signal -> execucaoAtiva.set(null));
+        });
+    }
+
+    /**
+     * Retoma uma execução interrompida, se houver: reserva-a atomicamente para esta instância e
+     * processa apenas os links ainda não concluídos. Emite todos os links da execução, inclusive os
+     * concluídos antes da interrupção, cujas alterações ainda não foram entregues. Vazio quando não
+     * há o que retomar ou esta instância já está ocupada.
+     */
+    public Mono<List<Link>> retomarInterrompida() {
+        return Mono.defer(() -> {
+            String reserva = "retomando";
+            if (!execucaoAtiva.compareAndSet(null, reserva)) {
+                return Mono.<List<Link>>empty();
+            }
+            Query query = Query.query(Criteria.where("status").is(CrawlRun.Status.EXECUTANDO)
+                    .and("heartbeatEm").lt(Instant.now().minus(properties.getStaleAfter())));
+            Update update = new Update()
+                    .set("nodeId", clusterLeaseService.getNodeId())
+                    .set("heartbeatEm", Instant.now())
+                    .inc("retomadas", 1);
+            return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), CrawlRun.class)
+                    .flatMap(execucao -> {
+                        execucaoAtiva.set(execucao.getId());
+                        List<String> pendentes = new ArrayList<>(execucao.getLinkIds());
+                        pendentes.removeAll(execucao.getLinksConcluidos());
+                        log.warn("Retomando execução {} ({}) com {} de {} links pendentes", execucao.getId(),
+                                execucao.getOrigem(), pendentes.size(), execucao.getLinkIds().size());
+                        return linkRepository.findAllById(pendentes)
+                                .collectList()
+                                .flatMap(links -> processar(execucao, links))
+                                .then(linkRepository.findAllById(execucao.getLinkIds()).collectList());
+                    })
+                    .doFinally(signal -> execucaoAtiva.set(null));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "#{@crawlerRunsProperties.heartbeatInterval.toMillis()}")
+    public void heartbeat() {
+        String id = execucaoAtiva.get();
+        if (id == null) {
+            return;
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)), Update.update("heartbeatEm", Instant.now()), CrawlRun.class)
+                .doOnError(e -> log.warn("Falha no heartbeat da execução {}: {}", id, e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .subscribe();
+    }
+
+    private Mono<List<ResultadoCrawlLink>> processar(CrawlRun execucao, List<Link> links) {
+        Query daExecucao = Query.query(Criteria.where("_id").is(execucao.getId()));
+        return crawlerEngineService.crawl(links)
+                .concatMap(resultado -> mongoTemplate.updateFirst(daExecucao,
+                                new Update().addToSet("linksConcluidos", resultado.getLink().getId())
+                                        .inc("falhas", resultado.getPaginasComFalha()), CrawlRun.class)
+                        .thenReturn(resultado))
+                .collectList()
+                .contextWrite(contexto -> contexto.put(CheckpointPaginas.class, new CheckpointDaExecucao(execucao.getId())))
+                .flatMap(resultados -> finalizar(execucao, CrawlRun.Status.CONCLUIDA, null).thenReturn(resultados))
+                .onErrorResume(e -> finalizar(execucao, CrawlRun.Status.FALHOU, e.getMessage()).then(Mono.error(e)));
+    }
+
+    private Mono<Void> finalizar(CrawlRun execucao, CrawlRun.Status status, String erro) {
+        Instant agora = Instant.now();
+        Update update = new Update()
+                .set("status", status)
+                .set("finalizadaEm", agora)
+                .set("duracaoMs", Duration.between(execucao.getIniciadaEm(), agora).toMillis());
+        if (erro != null) {
+            update.set("erro", erro).inc("falhas", 1);
+        }
+        log.info("Execução {} ({}) finalizada: {}", execucao.getId(), execucao.getOrigem(), status);
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(execucao.getId())), update, CrawlRun.class)
+                .then();
+    }
+
+    private final class CheckpointDaExecucao implements CheckpointPaginas {
+        private final String runId;
+
+        private CheckpointDaExecucao(String runId) {
+            this.runId = runId;
+        }
+
+        @Override
+        public Mono<SortedMap<Integer, List<Produto>>> paginasConcluidas(String uri) {
+            Query query = Query.query(Criteria.where("runId").is(runId).and("uri").is(uri));
+            return mongoTemplate.find(query, CrawlCheckpoint.class)
+                    .collectMap(CrawlCheckpoint::getPagina,
+                            checkpoint -> checkpoint.getProdutos().stream().map(ProdutoEncontrado::paraProduto).toList(),
+                            TreeMap::new)
+                    .map(paginas -> (SortedMap<Integer, List<Produto>>) paginas);
+        }
+
+        @Override
+        public Mono<Void> registrar(String uri, int pagina, List<Produto> produtos) {
+            Query query = Query.query(Criteria.where("runId").is(runId).and("uri").is(uri).and("pagina").is(pagina));
+            Update checkpoint = new Update()
+                    .set("produtos", produtos.stream().map(ProdutoEncontrado::de).toList())
+                    .set("registradoEm", Instant.now());
+            return mongoTemplate.upsert(query, checkpoint, CrawlCheckpoint.class)
+                    .then(mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(runId)),
+                            new Update().inc("paginas", 1), CrawlRun.class))
+                    .then();
+        }
+    }
+}
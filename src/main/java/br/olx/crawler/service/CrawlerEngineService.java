@@ -0,0 +1,65 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerEngineProperties;
+import br.olx.crawler.dto.ResultadoCrawlLink;
+import br.olx.crawler.entity.Link;
+import br.olx.crawler.util.ReactiveSemaphore;
+import br.olx.crawler.util.UriUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Executa o crawler de vários links em paralelo, respeitando um limite global e um limite por host.
+ * Os resultados são emitidos na mesma ordem dos links recebidos, já com as alterações desde a visita
+ * anterior e depois de gravados em {@code listings}.
+ */
+@Slf4j
+@Service
+public class CrawlerEngineService {
+
+    private final IncrementalCrawlService incrementalCrawlService;
+    private final ChangeDetectionService changeDetectionService;
+    private final ListingService listingService;
+    private final CrawlerEngineProperties properties;
+    private final Map<String, ReactiveSemaphore> limitesPorHost = new ConcurrentHashMap<>();
+
+    public CrawlerEngineService(IncrementalCrawlService incrementalCrawlService,
+                                ChangeDetectionService changeDetectionService,
+                                ListingService listingService,
+                                CrawlerEngineProperties properties) {
+        this.incrementalCrawlService = incrementalCrawlService;
+        this.changeDetectionService = changeDetectionService;
+        this.listingService = listingService;
+        this.properties = properties;
+    }
+
+    public Flux<ResultadoCrawlLink> crawl(List<Link> links) {
+        log.info("Iniciando crawler de {} links (paralelismo global {}, por host {})",
+                links.size(), properties.getMaxConcurrency(), properties.getPerHostConcurrency());
+        // O crawler é não bloqueante: o limite do flatMapSequential é o limite global de links em andamento
+        return Flux.fromIterable(links)
+                .flatMapSequential(link -> limitePorHost(link.getUri())
+                                .withPermit(incrementalCrawlService.crawl(link))
+                                .flatMap(this::registrar)
+                                .onErrorMap(e -> new RuntimeException("Erro ao processar link " + link.getUri() + ": " + e.getMessage(), e)),
+                        properties.getMaxConcurrency());
+    }
+
+    // As alterações são calculadas contra o retrato anterior, antes de o novo ser gravado
+    private Mono<ResultadoCrawlLink> registrar(ResultadoCrawlLink resultado) {
+        return changeDetectionService.detectar(resultado)
+                .doOnNext(resultado::setAlteracoes)
+                .then(listingService.salvar(resultado.getLink().getId(), resultado.getProdutos()))
+                .thenReturn(resultado);
+    }
+
+    private ReactiveSemaphore limitePorHost(String uri) {
+        return limitesPorHost.computeIfAbsent(UriUtil.host(uri), host -> new ReactiveSemaphore(properties.getPerHostConcurrency()));
+    }
+}
@@ -0,0 +1,107 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerHttpClientConfig;
+import br.olx.crawler.config.CrawlerHttpProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Cliente HTTP compartilhado pelo crawler. Reaproveita as conexões do {@link HttpClient} gerenciado,
+ * pede respostas comprimidas e descomprime gzip/deflate à medida que os bytes chegam
+ * ({@link CorpoPaginaSubscriber}).
+ */
+@Component
+public class CrawlerHttpClient {
+
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final HttpClient httpClient;
+    private final CrawlerHttpProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ProdutoExtractor produtoExtractor;
+    private final Counter requisicoes;
+    private final CorpoPaginaSubscriber.Contadores contadores;
+
+    public CrawlerHttpClient(HttpClient crawlerHttpClient, CrawlerHttpProperties properties, MeterRegistry meterRegistry,
+                             ProdutoExtractor produtoExtractor) {
+        this.httpClient = crawlerHttpClient;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.produtoExtractor = produtoExtractor;
+        this.requisicoes = Counter.builder("crawler.http.requests")
+                .description("Requisições feitas pelo cliente HTTP do crawler")
+                .register(meterRegistry);
+        this.contadores = new CorpoPaginaSubscriber.Contadores(
+                Counter.builder("crawler.http.bytes.received")
+                        .description("Bytes recebidos pela rede, antes da descompressão")
+                        .register(meterRegistry),
+                Counter.builder("crawler.http.bytes.decoded")
+                        .description("Bytes das páginas depois da descompressão")
+                        .register(meterRegistry),
+                leiturasInterrompidas(meterRegistry, "max_body_size"),
+                leiturasInterrompidas(meterRegistry, "page_state_end"));
+        Counter conexoesAbertas = meterRegistry.counter(CrawlerHttpClientConfig.CONEXOES_ABERTAS_METRIC);
+        FunctionCounter.builder("crawler.http.connections.reused", this,
+                        cliente -> Math.max(0, cliente.requisicoes.count() - conexoesAbertas.count()))
+                .description("Requisições atendidas por conexões já abertas do pool")
+                .register(meterRegistry);
+    }
+
+    public HttpRequest.Builder requisicao(String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(properties.getReadTimeout())
+                .header("Accept-Encoding", ACCEPT_ENCODING);
+    }
+
+    // Requisição assíncrona: nenhuma thread fica bloqueada esperando a resposta
+    public Mono<HttpResponse<String>> send(HttpRequest request) {
+        return Mono.fromFuture(() -> {
+                    requisicoes.increment();
+                    return httpClient.sendAsync(request, this::corpoDaPagina);
+                })
+                .doOnNext(response -> meterRegistry.counter("crawler.http.responses", "protocol", response.version().name()).increment());
+    }
+
+    // O corpo é descomprimido e decodificado em streaming, limitado a crawler.http.max-body-size
+    private HttpResponse.BodySubscriber<String> corpoDaPagina(HttpResponse.ResponseInfo info) {
+        return new CorpoPaginaSubscriber(info.headers().firstValue("Content-Encoding").orElse(""),
+                charset(info.headers()),
+                properties.getMaxBodySize().toBytes(),
+                properties.isStopAfterPageState() ? produtoExtractor::estadoTemAnuncios : null,
+                contadores);
+    }
+
+    private static Charset charset(HttpHeaders headers) {
+        String contentType = headers.firstValue("Content-Type").orElse("");
+        int indice = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (indice >= 0) {
+            String nome = contentType.substring(indice + 8).split(";")[0].trim().replace("\"", "");
+            try {
+                return Charset.forName(nome);
+            } catch (IllegalArgumentException e) {
+                return StandardCharsets.UTF_8;
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static Counter leiturasInterrompidas(MeterRegistry meterRegistry, String motivo) {
+        return Counter.builder("crawler.http.bodies.stopped")
+                .description("Corpos de página cuja leitura foi encerrada antes do fim da resposta, por motivo")
+                .tag("reason", motivo)
+                .register(meterRegistry);
+    }
+}
@@ -1,7 +1,11 @@
 package br.olx.crawler.service;
 
+import br.olx.crawler.config.CrawlerRevisitProperties;
+import br.olx.crawler.dto.AlteracaoAnuncio;
+import br.olx.crawler.entity.CrawlRun;
 import br.olx.crawler.entity.Link;
 import br.olx.crawler.dto.Produto;
+import br.olx.crawler.dto.ResultadoCrawlLink;
 import br.olx.crawler.repository.LinkRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,6 +14,8 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -21,57 +27,99 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CrawlerScheduledService {
     private final LinkRepository linkRepository;
-    private final OlxCrawlerService olxCrawlerService;
+    private final CrawlerEngineService crawlerEngineService;
     private final EmailService emailService;
-    private final WhatsappMessageService whatsappMessageService;
+    private final ResumoEmailRenderer resumoEmailRenderer;
+    private final WhatsappDispatcherService whatsappDispatcherService;
+    private final ClusterLeaseService clusterLeaseService;
+    private final CrawlerRevisitProperties crawlerRevisitProperties;
+    private final CrawlRunService crawlRunService;
+    private final EntregaAlteracoesService entregaAlteracoesService;
 
     // Constantes para controle de crawler
     private static final int TOP_PRODUCTS_COUNT = 10;
 
+    // Alterações ainda não entregues a um canal para um link, já limitadas ao que cabe num envio
+    private record Pendentes(Link link, List<AlteracaoAnuncio> alteracoes) {
+    }
+
     @Scheduled(cron = "#{@crawlerScheduleProperties.schedule}")
     public void runCrawlerJob() {
-        processAndSendSummaryEmail().subscribe();
+        if (crawlerRevisitProperties.isEnabled()) {
+            log.debug("Revisita adaptativa ligada; o cron único não dispara o crawler");
+            return;
+        }
+        // Todas as instâncias disparam no mesmo minuto do cron; cada uma processa só a sua parte dos links
+        String execucao = Instant.now().truncatedTo(ChronoUnit.MINUTES).toString();
+        processAndSendSummaryEmail(CrawlRun.Origem.CRON, clusterLeaseService.linksDesteNo(linkRepository.findByEnabledTrue(), execucao))
+                .onErrorResume(e -> Mono.empty())
+                .subscribe();
     }
 
     public Mono<Void> run() {
-        return processAndSendSummaryEmail();
+        return processAndSendSummaryEmail(CrawlRun.Origem.MANUAL, linkRepository.findByEnabledTrue());
+    }
+
+    // Visita os links vencidos do agendador de revisitas e envia as alterações encontradas
+    public Mono<List<ResultadoCrawlLink>> revisitar(List<Link> links) {
+        log.info("Revisitando {} links vencidos", links.size());
+        return crawlRunService.executar(CrawlRun.Origem.REVISITA, Flux.fromIterable(links))
+                .flatMap(resultadosCrawl -> enviarResumo(links(resultadosCrawl)).thenReturn(resultadosCrawl));
+    }
+
+    // Execuções interrompidas por reinício ou queda de uma instância continuam de onde pararam; o resumo
+    // cobre todos os links da execução, inclusive os concluídos antes da interrupção
+    @Scheduled(fixedDelayString = "#{@crawlerRunsProperties.staleAfter.toMillis()}")
+    public void retomarExecucoesInterrompidas() {
+        crawlRunService.retomarInterrompida()
+                .flatMap(this::enviarResumo)
+                .doOnError(e -> log.error("Erro ao retomar execução interrompida", e))
+                .onErrorResume(e -> Mono.empty())
+                .subscribe();
     }
 
-    private Mono<Void> processAndSendSummaryEmail() {
+    private Mono<Void> processAndSendSummaryEmail(CrawlRun.Origem origem, Flux<Link> linksAtivos) {
         log.info("Iniciando job de crawler para envio de e-mail...");
-        return linkRepository.findByEnabledTrue()
-                .collectList()
-                .flatMap(links -> {
-                    Map<String, List<Produto>> resultados = new LinkedHashMap<>();
-                    for (Link link : links) {
-                        List<Produto> produtos = olxCrawlerService.crawlerPorUri(link.getUri());
-                        List<Produto> top10 = produtos.stream()
-                                .sorted(Comparator.comparingDouble(Produto::getPrecoNumerico))
-                                .limit(TOP_PRODUCTS_COUNT)
-                                .collect(Collectors.toList());
-                        resultados.put(link.getUri(), top10);
+        return crawlRunService.executar(origem, linksAtivos)
+                .flatMap(resultadosCrawl -> enviarResumo(links(resultadosCrawl)))
+                .doOnError(e -> log.error("Erro no job de crawler", e));
+    }
+
+    // Só entram no e-mail os links com alterações ainda não enviadas por e-mail; o cursor avança depois do envio
+    private Mono<Void> enviarResumo(List<Link> links) {
+        return pendentes(links, EntregaAlteracoesService.Canal.EMAIL)
+                .flatMap(pendentes -> {
+                    if (pendentes.isEmpty()) {
+                        log.info("Nenhuma alteração nos links desde o último e-mail; e-mail não enviado");
+                        return Mono.<Void>empty();
                     }
-                    StringBuilder corpo = new StringBuilder();
-                    corpo.append("<html><body>");
-                    for (Map.Entry<String, List<Produto>> entry : resultados.entrySet()) {
-                        String link = entry.getKey();
-                        List<Produto> produtos = entry.getValue();
-                        corpo.append("<h3><a href='").append(link).append("' target='_blank'>").append(link).append("</a></h3>");
-                        corpo.append("<table border='1' cellpadding='5' cellspacing='0' style='border-collapse:collapse;'>");
-                        corpo.append("<tr><th>Nome do anúncio</th><th>Preço</th><th>Link</th></tr>");
-                        for (Produto p : produtos) {
-                            corpo.append("<tr>");
-                            corpo.append("<td>").append(p.getTitulo()).append("</td>");
-                            corpo.append("<td>").append(p.getPreco()).append("</td>");
-                            corpo.append("<td><a href='").append(p.getLink()).append("' target='_blank'>Ver anúncio</a></td>");
-                            corpo.append("</tr>");
-                        }
-                        corpo.append("</table><br/>");
+                    Map<String, List<AlteracaoAnuncio>> resultados = new LinkedHashMap<>();
+                    pendentes.forEach(doLink -> resultados.put(doLink.link().getUri(), doLink.alteracoes()));
+                    return emailService.sendSummaryEmail(resumoEmailRenderer.renderizar(resultados))
+                            .then(confirmar(pendentes, EntregaAlteracoesService.Canal.EMAIL));
+                });
+    }
+
+    private Mono<List<Pendentes>> pendentes(List<Link> links, EntregaAlteracoesService.Canal canal) {
+        return Flux.fromIterable(links)
+                .filter(link -> link.getId() != null)
+                // Só as alterações enviadas têm o cursor confirmado; as além do limite ficam para o próximo envio
+                .concatMap(link -> entregaAlteracoesService.pendentes(link.getId(), canal)
+                        .map(alteracoes -> new Pendentes(link, alteracoesParaEnvio(alteracoes))))
+                .filter(pendentes -> {
+                    if (pendentes.alteracoes().isEmpty()) {
+                        log.info("Nenhuma alteração pendente ({}) para o link: {}", canal, pendentes.link().getUri());
+                        return false;
                     }
-                    corpo.append("</body></html>");
-                    return emailService.sendSummaryEmail(corpo.toString());
+                    return true;
                 })
-                .doOnError(e -> log.error("Erro no job de crawler", e));
+                .collectList();
+    }
+
+    private Mono<Void> confirmar(List<Pendentes> entregues, EntregaAlteracoesService.Canal canal) {
+        return Flux.fromIterable(entregues)
+                .concatMap(pendentes -> entregaAlteracoesService.confirmar(pendentes.link().getId(), canal, pendentes.alteracoes()))
+                .then();
     }
 
     public Mono<Void> runWhatsappCrawler() {
@@ -86,46 +134,44 @@ public class CrawlerScheduledService {
 
                     log.info("Processando {} links para envio via WhatsApp", links.size());
 
-                    return Flux.fromIterable(links)
-                            .flatMap(link -> {
-                                log.info("Processando link: {}", link.getUri());
-
-                                try {
-                                    List<Produto> produtos = olxCrawlerService.crawlerPorUri(link.getUri());
-                                        List<Produto> top10 = produtos.stream()
-                                                .sorted(Comparator.comparingDouble(Produto::getPrecoNumerico))
-                                                .limit(TOP_PRODUCTS_COUNT)
-                                                .toList();
-
-                                        if (top10.isEmpty()) {
-                                        log.warn("Nenhum produto encontrado para o link: {}", link.getUri());
-                                        return Mono.just(false); // Continua processamento mesmo sem produtos
-                                    }
-
-                                    StringBuilder mensagem = new StringBuilder();
-                                    mensagem.append("*Top 10 Anúncios*\n");
-
-                                    for (Produto p : top10) {
-                                        mensagem.append("*").append(p.getTitulo()).append("*\n");
-                                        mensagem.append("💰 Preço: ").append(p.getPreco()).append("\n");
-                                        mensagem.append("🔗 ").append(p.getLink()).append("\n\n");
-                                    }
-
-                                    return whatsappMessageService.sendMessage("51999353392", mensagem.toString())
-                                            .doOnSuccess(success -> log.info("Mensagem enviada com sucesso para link: {}", link.getUri()))
-                                            .onErrorResume(error -> {
-                                                log.error("Erro ao enviar mensagem para link {}: {}", link.getUri(), error.getMessage());
-                                                return Mono.error(new RuntimeException("Falha ao enviar mensagem para link " + link.getUri() + ": " + error.getMessage(), error));
-                                            });
-
-                                } catch (Exception e) {
-                                    log.error("Erro ao processar crawler para link {}: {}", link.getUri(), e.getMessage());
-                                    return Mono.error(new RuntimeException("Erro ao processar link " + link.getUri() + ": " + e.getMessage(), e));
-                                }
-                            })
-                            .then()
-                            .doOnSuccess(v -> log.info("Todos os links processados com sucesso"));
+                    // Mensagens que falham ficam na fila de retentativas do despachante, então também contam como entregues
+                    return crawlerEngineService.crawl(links)
+                            .collectList()
+                            .flatMap(resultados -> pendentes(links(resultados), EntregaAlteracoesService.Canal.WHATSAPP))
+                            .flatMap(pendentes -> whatsappDispatcherService.enviar(pendentes.stream().map(this::blocoWhatsapp).toList())
+                                    .doOnNext(entregues -> log.info("Todos os links processados; {} mensagens entregues", entregues))
+                                    .then(confirmar(pendentes, EntregaAlteracoesService.Canal.WHATSAPP)));
                 })
                 .doOnError(e -> log.error("Erro geral no job de crawler para WhatsApp: {}", e.getMessage()));
     }
+
+    private static List<Link> links(List<ResultadoCrawlLink> resultadosCrawl) {
+        return resultadosCrawl.stream().map(ResultadoCrawlLink::getLink).toList();
+    }
+
+    // Um bloco por link com alterações; o despachante junta vários blocos numa mesma mensagem
+    private String blocoWhatsapp(Pendentes pendentes) {
+        Link link = pendentes.link();
+        StringBuilder mensagem = new StringBuilder();
+        mensagem.append("*Novidades nos anúncios*\n");
+        mensagem.append(link.getUri()).append("\n\n");
+
+        for (AlteracaoAnuncio alteracao : pendentes.alteracoes()) {
+            Produto p = alteracao.getProduto();
+            mensagem.append(alteracao.descricao()).append("\n");
+            mensagem.append("*").append(p.getTitulo()).append("*\n");
+            mensagem.append("💰 Preço: ").append(p.getPreco()).append("\n");
+            mensagem.append("🔗 ").append(p.getLink()).append("\n\n");
+        }
+        return mensagem.toString();
+    }
+
+    // Novos e baratos primeiro: a ordem dos tipos segue a declaração do enum e, dentro dela, o menor preço
+    private List<AlteracaoAnuncio> alteracoesParaEnvio(List<AlteracaoAnuncio> alteracoes) {
+        return alteracoes.stream()
+                .sorted(Comparator.comparing(AlteracaoAnuncio::getTipo)
+                        .thenComparingDouble(alteracao -> alteracao.getProduto().getPrecoNumerico()))
+                .limit(TOP_PRODUCTS_COUNT)
+                .collect(Collectors.toList());
+    }
 }
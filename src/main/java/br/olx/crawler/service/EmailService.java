@@ -1,19 +1,43 @@
 package br.olx.crawler.service;
 
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
 import jakarta.mail.internet.MimeMessage;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envio de e-mails por uma conexão SMTP reaproveitada entre mensagens.
+ * Todo envio roda num scheduler próprio de uma thread com fila limitada, o que serializa o uso da
+ * conexão (o Transport não é thread-safe) e tira o SMTP das threads de quem chama. Mensagens
+ * enfileiradas em sequência saem pela mesma conexão; um fechamento agendado no mesmo scheduler, e
+ * remarcado a cada envio, a fecha depois de {@code idleTimeout} sem uso.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class EmailService {
-    private final JavaMailSender mailSender;
+
+    private static final String ASSUNTO_RESUMO = "Resumo dos produtos dos links monitorados";
+
+    private final JavaMailSenderImpl mailSender;
+    private final Scheduler smtpScheduler;
+    private final long ociosidadeMaximaNanos;
+    // Acessados só pela thread do smtpScheduler
+    private Transport transport;
+    private long ultimoUso;
+    private Disposable fechamentoOcioso;
 
     @Value("${crawler.email.to}")
     private String to;
@@ -21,22 +45,107 @@ public class EmailService {
     @Value("${crawler.email.from}")
     private String from;
 
+    public EmailService(JavaMailSenderImpl mailSender,
+                        @Value("${crawler.email.idle-timeout:2m}") Duration idleTimeout,
+                        @Value("${crawler.email.queue-capacity:100}") int queueCapacity) {
+        this.mailSender = mailSender;
+        this.ociosidadeMaximaNanos = idleTimeout.toNanos();
+        this.smtpScheduler = Schedulers.newBoundedElastic(1, queueCapacity, "smtp");
+    }
+
     public Mono<Void> sendSummaryEmail(String corpoHtml) {
-        return Mono.fromRunnable(() -> {
-            String subject = "Resumo dos produtos dos links monitorados";
-            try {
-                MimeMessage message = mailSender.createMimeMessage();
-                MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-                helper.setTo(to);
-                helper.setFrom(from);
-                helper.setSubject(subject);
-                helper.setText(corpoHtml, true);
-                mailSender.send(message);
-                log.info("E-mail resumo enviado para {}", to);
-            } catch (Exception e) {
-                log.error("Erro ao enviar e-mail HTML", e);
-                throw new RuntimeException(e);
+        return send(List.of(corpoHtml));
+    }
+
+    // Vários corpos saem como mensagens separadas na mesma conexão, numa única tarefa do scheduler
+    public Mono<Void> send(List<String> corposHtml) {
+        return Mono.<Void>fromRunnable(() -> {
+                    try {
+                        for (String corpoHtml : corposHtml) {
+                            enviar(criarMensagem(corpoHtml));
+                        }
+                        log.info("{} e-mail(s) de resumo enviados para {}", corposHtml.size(), to);
+                    } catch (Exception e) {
+                        log.error("Erro ao enviar e-mail HTML", e);
+                        throw new RuntimeException(e);
+                    } finally {
+                        agendarFechamento();
+                    }
+                })
+                .subscribeOn(smtpScheduler);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        smtpScheduler.schedule(() -> {
+            if (fechamentoOcioso != null) {
+                fechamentoOcioso.dispose();
             }
+            fecharTransport();
         });
+        smtpScheduler.disposeGracefully().timeout(Duration.ofSeconds(10)).onErrorResume(e -> Mono.empty()).block();
+    }
+
+    // Roda na thread do smtpScheduler, como o próprio fechamento, então não concorre com um envio
+    private void agendarFechamento() {
+        if (fechamentoOcioso != null) {
+            fechamentoOcioso.dispose();
+        }
+        if (transport != null) {
+            fechamentoOcioso = smtpScheduler.schedule(() -> {
+                log.debug("Conexão SMTP ociosa fechada");
+                fecharTransport();
+            }, ociosidadeMaximaNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private MimeMessage criarMensagem(String corpoHtml) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setTo(to);
+        helper.setFrom(from);
+        helper.setSubject(ASSUNTO_RESUMO);
+        helper.setText(corpoHtml, true);
+        message.saveChanges();
+        return message;
+    }
+
+    // Uma conexão reaproveitada pode ter sido derrubada pelo servidor: tenta de novo uma vez com outra
+    private void enviar(MimeMessage message) throws MessagingException {
+        try {
+            Transport conexao = conexao();
+            conexao.sendMessage(message, message.getAllRecipients());
+        } catch (MessagingException e) {
+            log.warn("Falha no envio pela conexão SMTP atual, reconectando: {}", e.getMessage());
+            fecharTransport();
+            conexao().sendMessage(message, message.getAllRecipients());
+        }
+        ultimoUso = System.nanoTime();
+    }
+
+    private Transport conexao() throws MessagingException {
+        if (transport != null && (!transport.isConnected() || System.nanoTime() - ultimoUso > ociosidadeMaximaNanos)) {
+            fecharTransport();
+        }
+        if (transport == null) {
+            String protocolo = mailSender.getProtocol() != null ? mailSender.getProtocol() : JavaMailSenderImpl.DEFAULT_PROTOCOL;
+            Transport novo = mailSender.getSession().getTransport(protocolo);
+            novo.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+            transport = novo;
+            log.debug("Conexão SMTP aberta com {}:{}", mailSender.getHost(), mailSender.getPort());
+        }
+        return transport;
+    }
+
+    private void fecharTransport() {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Erro ao fechar conexão SMTP: {}", e.getMessage());
+        }
+        transport = null;
     }
 }
@@ -0,0 +1,90 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.AlteracaoAnuncio;
+import br.olx.crawler.dto.Produto;
+import br.olx.crawler.entity.Listing;
+import br.olx.crawler.repository.ListingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Controla o que cada canal de notificação já recebeu. Cada anúncio guarda, por canal, o último
+ * estado entregue; as alterações pendentes de um canal são a diferença entre o estado atual em
+ * {@code listings} e esse cursor. O cursor só avança depois que a entrega deu certo, então uma
+ * falha de envio mantém as alterações para a próxima execução e um canal não consome as do outro.
+ */
+@Service
+public class EntregaAlteracoesService {
+
+    public enum Canal {
+        EMAIL, WHATSAPP
+    }
+
+    private final ListingRepository listingRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final int batchSize;
+
+    public EntregaAlteracoesService(ListingRepository listingRepository,
+                                    ReactiveMongoTemplate mongoTemplate,
+                                    @Value("${crawler.listings.batch-size:1000}") int batchSize) {
+        this.listingRepository = listingRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public Mono<List<AlteracaoAnuncio>> pendentes(String linkId, Canal canal) {
+        return listingRepository.findByLinkId(linkId)
+                .mapNotNull(listing -> pendente(listing, canal))
+                .collectList();
+    }
+
+    // Avança o cursor do canal para o estado que foi entregue, não para o estado atual do anúncio
+    public Mono<Void> confirmar(String linkId, Canal canal, List<AlteracaoAnuncio> entregues) {
+        return Flux.fromIterable(entregues)
+                .buffer(batchSize)
+                .concatMap(lote -> {
+                    ReactiveBulkOperations operacoes = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Listing.class);
+                    lote.forEach(alteracao -> operacoes.updateOne(
+                            Query.query(Criteria.where("linkId").is(linkId).and("anuncioId").is(alteracao.getProduto().getAnuncioId())),
+                            Update.update("entregas." + canal.name(), entrega(alteracao))));
+                    return operacoes.execute();
+                })
+                .then();
+    }
+
+    private static AlteracaoAnuncio pendente(Listing listing, Canal canal) {
+        Listing.Entrega entregue = listing.getEntregas() == null ? null : listing.getEntregas().get(canal.name());
+        boolean removido = listing.getRemovidoEm() != null;
+        Produto produto = new Produto(listing.getTitulo(), listing.getPreco(), listing.getLink(), listing.getImagem());
+
+        if (entregue == null || entregue.isRemovido()) {
+            return removido ? null : new AlteracaoAnuncio(AlteracaoAnuncio.Tipo.NOVO, produto, null);
+        }
+        if (removido) {
+            return new AlteracaoAnuncio(AlteracaoAnuncio.Tipo.REMOVIDO, produto, entregue.getPreco());
+        }
+        Double precoAtual = listing.getPrecoNumerico();
+        Double precoAnterior = entregue.getPrecoNumerico();
+        if (precoAtual == null || precoAnterior == null || precoAtual.equals(precoAnterior)) {
+            return null;
+        }
+        AlteracaoAnuncio.Tipo tipo = precoAtual < precoAnterior ? AlteracaoAnuncio.Tipo.PRECO_CAIU : AlteracaoAnuncio.Tipo.PRECO_SUBIU;
+        return new AlteracaoAnuncio(tipo, produto, entregue.getPreco());
+    }
+
+    private static Listing.Entrega entrega(AlteracaoAnuncio alteracao) {
+        Produto produto = alteracao.getProduto();
+        return new Listing.Entrega(produto.getPreco(), ListingService.precoNumerico(produto),
+                alteracao.getTipo() == AlteracaoAnuncio.Tipo.REMOVIDO);
+    }
+}
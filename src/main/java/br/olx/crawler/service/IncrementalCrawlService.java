@@ -0,0 +1,99 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerIncrementalProperties;
+import br.olx.crawler.dto.Produto;
+import br.olx.crawler.dto.ProdutosColetados;
+import br.olx.crawler.dto.ResultadoCrawlLink;
+import br.olx.crawler.entity.Link;
+import br.olx.crawler.util.UriUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decide, por link, entre crawler completo e incremental e lembra os anúncios vistos em cada execução.
+ * O modo incremental só vale para buscas ordenadas por data (sf=1), em que anúncios novos aparecem
+ * nas primeiras páginas; de tempos em tempos um crawler completo é forçado.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IncrementalCrawlService {
+
+    private static final String PARAMETRO_ORDENACAO = "sf";
+    private static final String ORDENACAO_POR_DATA = "1";
+
+    private final OlxCrawlerService olxCrawlerService;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CrawlerIncrementalProperties properties;
+
+    public Mono<ResultadoCrawlLink> crawl(Link link) {
+        boolean incremental = podeSerIncremental(link);
+        Mono<ProdutosColetados> coleta;
+        if (incremental) {
+            log.info("Crawler incremental do link {}", link.getUri());
+            coleta = olxCrawlerService.crawlerIncremental(link.getUri(),
+                    new HashSet<>(link.getAnunciosConhecidos()), properties.getPagesWithoutNew());
+        } else {
+            coleta = olxCrawlerService.crawlerPorUri(link.getUri());
+        }
+        return coleta.flatMap(coletados -> {
+            boolean semFalhas = coletados.getPaginasComFalha() == 0;
+            if (!semFalhas) {
+                log.warn("Link {}: {} páginas falharam; anúncios ausentes não serão dados como removidos",
+                        link.getUri(), coletados.getPaginasComFalha());
+            }
+            boolean completo = !incremental && semFalhas && coletados.isFimDaPaginacao();
+            return lembrarAnuncios(link, coletados.getProdutos(), !incremental && semFalhas)
+                    .thenReturn(new ResultadoCrawlLink(link, coletados.getProdutos(), completo,
+                            coletados.getPaginasComFalha(), List.of()));
+        });
+    }
+
+    private boolean podeSerIncremental(Link link) {
+        if (!properties.isEnabled() || link.getAnunciosConhecidos() == null || link.getAnunciosConhecidos().isEmpty()) {
+            return false;
+        }
+        boolean ordenadoPorData = UriUtil.parametro(link.getUri(), PARAMETRO_ORDENACAO)
+                .filter(ORDENACAO_POR_DATA::equals)
+                .isPresent();
+        Instant ultimoCompleto = link.getUltimoCrawlCompleto();
+        boolean completoRecente = ultimoCompleto != null
+                && ultimoCompleto.plus(properties.getFullCrawlInterval()).isAfter(Instant.now());
+        return ordenadoPorData && completoRecente;
+    }
+
+    // Ids desta execução primeiro, seguidos dos já conhecidos, limitados ao máximo configurado
+    private Mono<Void> lembrarAnuncios(Link link, List<Produto> produtos, boolean completo) {
+        Set<String> ids = new LinkedHashSet<>();
+        produtos.forEach(produto -> ids.add(produto.getAnuncioId()));
+        if (link.getAnunciosConhecidos() != null) {
+            ids.addAll(link.getAnunciosConhecidos());
+        }
+        List<String> conhecidos = new ArrayList<>(ids).subList(0, Math.min(ids.size(), properties.getMaxKnownAds()));
+
+        link.setAnunciosConhecidos(conhecidos);
+        Update update = new Update().set("anunciosConhecidos", conhecidos);
+        if (completo) {
+            link.setUltimoCrawlCompleto(Instant.now());
+            update.set("ultimoCrawlCompleto", link.getUltimoCrawlCompleto());
+        }
+        if (link.getId() == null) {
+            return Mono.empty();
+        }
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(link.getId())), update, Link.class)
+                .then();
+    }
+}
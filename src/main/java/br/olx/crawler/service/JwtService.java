@@ -2,6 +2,7 @@ package br.olx.crawler.service;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -10,22 +11,54 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.List;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
+/**
+ * Emissão e verificação dos tokens JWT.
+ * O parser é montado uma vez e cada token é verificado uma única vez para virar um {@link JwtPrincipal};
+ * os principais já verificados ficam num cache limitado, indexado pelo SHA-256 do token, e valem até
+ * o {@code exp} do próprio token. Tokens inválidos nunca entram no cache.
+ */
 @Service
 @Slf4j
 public class JwtService {
 
+    public record JwtPrincipal(String username, Set<String> roles, long expiraEmMillis) {
+
+        public boolean expirado(long agoraMillis) {
+            return agoraMillis >= expiraEmMillis;
+        }
+    }
+
     private final SecretKey key;
     private final long expiration;
+    private final JwtParser parser;
+    private final Map<String, JwtPrincipal> verificados;
 
     public JwtService(@Value("${security.jwt.secret}") String secret,
-                      @Value("${security.jwt.expiration}") long expiration) {
+                      @Value("${security.jwt.expiration}") long expiration,
+                      @Value("${security.jwt.cache.max-entries:10000}") int maxEntries) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.expiration = expiration;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.verificados = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JwtPrincipal> eldest) {
+                return size() > maxEntries;
+            }
+        };
     }
 
     public String generateToken(String username, Set<String> roles) {
@@ -41,59 +74,64 @@ public class JwtService {
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
-    }
+    // Principal do token, se a assinatura confere e ele ainda não expirou
+    public Optional<JwtPrincipal> verificar(String token) {
+        long agora = System.currentTimeMillis();
+        String chave = digest(token);
 
-    @SuppressWarnings("unchecked")
-    public Set<String> getRolesFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        JwtPrincipal emCache;
+        synchronized (this) {
+            emCache = verificados.get(chave);
+            if (emCache != null && emCache.expirado(agora)) {
+                verificados.remove(chave);
+                emCache = null;
+            }
+        }
+        if (emCache != null) {
+            return Optional.of(emCache);
+        }
 
-        // O JWT pode armazenar roles como List ou Set, vamos converter para Set
-        Object rolesObj = claims.get("roles");
-        if (rolesObj instanceof List) {
-            return new HashSet<>((List<String>) rolesObj);
-        } else if (rolesObj instanceof Set) {
-            return (Set<String>) rolesObj;
-        } else {
-            return new HashSet<>();
+        JwtPrincipal principal = parse(token);
+        if (principal == null || principal.expirado(agora)) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            verificados.put(chave, principal);
         }
+        return Optional.of(principal);
     }
 
-    public boolean validateToken(String token) {
+    private JwtPrincipal parse(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            // Sem exp o token valeria para sempre; não é o que este serviço emite
+            if (claims.getExpiration() == null) {
+                log.warn("Token JWT sem data de expiração rejeitado");
+                return null;
+            }
+            return new JwtPrincipal(claims.getSubject(), roles(claims), claims.getExpiration().getTime());
         } catch (JwtException | IllegalArgumentException e) {
             log.error("Token JWT inválido: {}", e.getMessage());
-            return false;
+            return null;
         }
     }
 
-    public boolean isTokenExpired(String token) {
-        try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+    // O JWT pode armazenar roles como List ou Set, vamos converter para Set
+    private static Set<String> roles(Claims claims) {
+        Object rolesObj = claims.get("roles");
+        if (rolesObj instanceof Collection<?> colecao) {
+            return colecao.stream().map(String::valueOf).collect(Collectors.toUnmodifiableSet());
+        }
+        return Set.of();
+    }
 
-            return claims.getExpiration().before(new Date());
-        } catch (JwtException | IllegalArgumentException e) {
-            return true;
+    // O cache guarda o hash, não o token: um dump de memória não expõe credenciais reaproveitáveis
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
         }
     }
 }
@@ -1,32 +1,189 @@
 package br.olx.crawler.service;
 
+import br.olx.crawler.dto.LinkImportacao;
+import br.olx.crawler.dto.ResultadoImportacaoLink;
 import br.olx.crawler.entity.Link;
 import br.olx.crawler.repository.LinkRepository;
-import lombok.RequiredArgsConstructor;
+import br.olx.crawler.util.UriUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
-import static java.util.Objects.nonNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Cadastro dos links monitorados. Cada link é identificado pela forma canônica da sua URL
+ * ({@link UriUtil#canonica}), protegida por um índice único: a duplicidade é detectada pelo próprio
+ * banco na inserção, sem consulta prévia. A importação em massa grava lotes de inserts não ordenados
+ * e devolve o resultado de cada linha.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class LinkService {
+
+    private record Entrada(long linha, Link link, String erro) {
+    }
+
     private final LinkRepository linkRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public LinkService(LinkRepository linkRepository,
+                       ReactiveMongoTemplate mongoTemplate,
+                       ObjectMapper objectMapper,
+                       @Value("${crawler.links.import-batch-size:1000}") int batchSize) {
+        this.linkRepository = linkRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
 
     public Mono<Link> registerLink(String uri) {
-        return linkRepository.findByUri(uri)
-            .flatMap(existing -> {
-                if (nonNull(existing)) {
-                    return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "URL já cadastrada"));
-                }
-                return createNewLink(uri);
-            })
-            .switchIfEmpty(Mono.defer(() ->createNewLink(uri)));
-    }
-
-    private Mono<Link> createNewLink(String uri) {
-        return linkRepository.save(Link.builder().enabled(true).uri(uri).build());
+        return Mono.fromCallable(() -> novoLink(uri, null, true))
+                .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()))
+                .flatMap(linkRepository::insert)
+                .onErrorMap(DuplicateKeyException.class, e -> new ResponseStatusException(HttpStatus.FORBIDDEN, "URL já cadastrada"));
+    }
+
+    // Uma linha NDJSON por link; linhas em branco são ignoradas mas contam na numeração
+    public Flux<ResultadoImportacaoLink> importar(Flux<String> linhas) {
+        return linhas.index()
+                .filter(linha -> !linha.getT2().isBlank())
+                .map(this::entrada)
+                .buffer(batchSize)
+                .concatMap(this::importarLote);
+    }
+
+    // Links gravados antes do índice único recebem a forma canônica; duplicatas ficam de fora e são avisadas
+    @EventListener(ApplicationReadyEvent.class)
+    public void normalizarLinksAntigos() {
+        mongoTemplate.find(Query.query(Criteria.where("uriCanonica").exists(false)), Link.class)
+                .concatMap(link -> normalizar(link).onErrorResume(e -> {
+                    log.warn("Link {} ({}) não foi normalizado: {}", link.getId(), link.getUri(), e.getMessage());
+                    return Mono.just(false);
+                }))
+                .filter(Boolean::booleanValue)
+                .count()
+                .filter(total -> total > 0)
+                .subscribe(total -> log.info("{} links antigos receberam a URL canônica", total));
+    }
+
+    private Mono<Boolean> normalizar(Link link) {
+        return Mono.fromCallable(() -> UriUtil.canonica(link.getUri()))
+                .flatMap(canonica -> mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(link.getId())),
+                        Update.update("uriCanonica", canonica), Link.class))
+                .map(resultado -> resultado.getModifiedCount() > 0);
+    }
+
+    private Entrada entrada(Tuple2<Long, String> linha) {
+        long numero = linha.getT1() + 1;
+        try {
+            LinkImportacao importacao = ler(linha.getT2().trim());
+            return new Entrada(numero, novoLink(importacao.getUri(), importacao.getTerm(), importacao.isEnabled()), null);
+        } catch (JsonProcessingException e) {
+            return new Entrada(numero, null, "JSON inválido: " + e.getOriginalMessage());
+        } catch (IllegalArgumentException e) {
+            return new Entrada(numero, null, e.getMessage());
+        }
+    }
+
+    private LinkImportacao ler(String json) throws JsonProcessingException {
+        if (json.startsWith("\"")) {
+            LinkImportacao importacao = new LinkImportacao();
+            importacao.setUri(objectMapper.readValue(json, String.class));
+            return importacao;
+        }
+        LinkImportacao importacao = objectMapper.readValue(json, LinkImportacao.class);
+        if (importacao.getUri() == null) {
+            throw new IllegalArgumentException("Campo uri ausente");
+        }
+        return importacao;
+    }
+
+    private Flux<ResultadoImportacaoLink> importarLote(List<Entrada> lote) {
+        List<Entrada> validas = lote.stream().filter(entrada -> entrada.link() != null).toList();
+        if (validas.isEmpty()) {
+            return Flux.fromIterable(lote).map(entrada -> resultado(entrada, null));
+        }
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Link.class)
+                .insert(validas.stream().map(Entrada::link).toList())
+                .execute()
+                .map(escrita -> Map.<Integer, BulkWriteError>of())
+                .onErrorResume(e -> falhasDoLote(e) != null, e -> Mono.just(porPosicao(falhasDoLote(e))))
+                .flatMapMany(falhas -> {
+                    log.info("Importação de links: lote de {} linhas, {} válidas, {} recusadas pelo banco",
+                            lote.size(), validas.size(), falhas.size());
+                    List<ResultadoImportacaoLink> resultados = new ArrayList<>(lote.size());
+                    int posicao = 0;
+                    for (Entrada entrada : lote) {
+                        resultados.add(resultado(entrada, entrada.link() == null ? null : falhas.get(posicao++)));
+                    }
+                    return Flux.fromIterable(resultados);
+                });
+    }
+
+    private static ResultadoImportacaoLink resultado(Entrada entrada, BulkWriteError falha) {
+        if (entrada.link() == null) {
+            return new ResultadoImportacaoLink(entrada.linha(), null, ResultadoImportacaoLink.Status.INVALIDO, entrada.erro());
+        }
+        String uri = entrada.link().getUriCanonica();
+        if (falha == null) {
+            return new ResultadoImportacaoLink(entrada.linha(), uri, ResultadoImportacaoLink.Status.CRIADO, null);
+        }
+        if (ErrorCategory.fromErrorCode(falha.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+            return new ResultadoImportacaoLink(entrada.linha(), uri, ResultadoImportacaoLink.Status.DUPLICADO, "URL já cadastrada");
+        }
+        return new ResultadoImportacaoLink(entrada.linha(), uri, ResultadoImportacaoLink.Status.ERRO, falha.getMessage());
+    }
+
+    // O template traduz a falha do lote (DuplicateKeyException, entre outras) mas mantém a original como causa
+    private static MongoBulkWriteException falhasDoLote(Throwable erro) {
+        for (Throwable atual = erro; atual != null; atual = atual.getCause()) {
+            if (atual instanceof MongoBulkWriteException bulk) {
+                return bulk;
+            }
+        }
+        return null;
+    }
+
+    private static Map<Integer, BulkWriteError> porPosicao(MongoBulkWriteException bulk) {
+        Map<Integer, BulkWriteError> falhas = new HashMap<>();
+        bulk.getWriteErrors().forEach(falha -> falhas.put(falha.getIndex(), falha));
+        return falhas;
+    }
+
+    private static Link novoLink(String uri, String term, boolean enabled) {
+        if (uri == null || uri.isBlank()) {
+            throw new IllegalArgumentException("URL não pode estar vazia");
+        }
+        String canonica = UriUtil.canonica(uri);
+        return Link.builder()
+                .uri(canonica)
+                .uriCanonica(canonica)
+                .term(term)
+                .enabled(enabled)
+                .build();
     }
 }
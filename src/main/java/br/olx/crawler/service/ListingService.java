@@ -0,0 +1,92 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.Produto;
+import br.olx.crawler.entity.Listing;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persiste os anúncios coletados na coleção {@code listings}, um documento por anúncio em cada link.
+ * Cada crawler grava seus produtos em lotes de upserts não ordenados, uma ida ao banco por lote,
+ * em vez de um save por documento.
+ */
+@Slf4j
+@Service
+public class ListingService {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final int batchSize;
+
+    public ListingService(ReactiveMongoTemplate mongoTemplate,
+                          @Value("${crawler.listings.batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+    }
+
+    // Retorna quantos anúncios foram inseridos ou atualizados
+    public Mono<Long> salvar(String linkId, List<Produto> produtos) {
+        Instant agora = Instant.now();
+        return Flux.fromIterable(produtos)
+                .filter(produto -> produto.getAnuncioId() != null)
+                // Ids repetidos no mesmo lote não ordenado disputariam o mesmo upsert
+                .distinct(Produto::getAnuncioId)
+                .buffer(batchSize)
+                .concatMap(lote -> gravarLote(linkId, lote, agora))
+                .map(resultado -> (long) resultado.getUpserts().size() + resultado.getModifiedCount())
+                .reduce(0L, Long::sum)
+                .doOnNext(total -> log.debug("{} anúncios gravados para o link {}", total, linkId));
+    }
+
+    private Mono<BulkWriteResult> gravarLote(String linkId, List<Produto> lote, Instant agora) {
+        ReactiveBulkOperations operacoes = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Listing.class);
+        lote.forEach(produto -> operacoes.upsert(doLink(linkId, produto.getAnuncioId()), atualizacao(produto, agora)));
+        return operacoes.execute();
+    }
+
+    // Na inserção, linkId e anuncioId vêm da própria consulta
+    private static Update atualizacao(Produto produto, Instant agora) {
+        return new Update()
+                .set("titulo", produto.getTitulo())
+                .set("preco", produto.getPreco())
+                .set("precoNumerico", precoNumerico(produto))
+                .set("link", produto.getLink())
+                .set("imagem", produto.getImagem())
+                .set("ultimaVezVisto", agora)
+                .setOnInsert("primeiraVezVisto", agora)
+                // Sem entregas, o anúncio fica pendente como novo em todos os canais
+                .setOnInsert("entregas", Map.of())
+                .unset("removidoEm");
+    }
+
+    public Mono<Void> marcarRemovidos(String linkId, List<String> anuncioIds) {
+        if (anuncioIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return mongoTemplate.updateMulti(Query.query(Criteria.where("linkId").is(linkId).and("anuncioId").in(anuncioIds)),
+                        Update.update("removidoEm", Instant.now()), Listing.class)
+                .then();
+    }
+
+    private static Query doLink(String linkId, String anuncioId) {
+        return Query.query(Criteria.where("linkId").is(linkId).and("anuncioId").is(anuncioId));
+    }
+
+    // Produto usa Double.MAX_VALUE para preço inválido; no banco ele fica nulo
+    public static Double precoNumerico(Produto produto) {
+        return produto.getPrecoNumerico() == Double.MAX_VALUE ? null : produto.getPrecoNumerico();
+    }
+}
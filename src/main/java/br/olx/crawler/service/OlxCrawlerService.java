@@ -1,28 +1,40 @@
 package br.olx.crawler.service;
 
+import br.olx.crawler.config.CrawlerPolitenessProperties;
+import br.olx.crawler.dto.CrawlEvent;
 import br.olx.crawler.dto.Produto;
+import br.olx.crawler.dto.ProdutosColetados;
+import br.olx.crawler.dto.ResultadoBusca;
+import br.olx.crawler.util.UriUtil;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuples;
+import reactor.util.retry.Retry;
 
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class OlxCrawlerService {
 
     private static final int MAX_PAGES = 20;
@@ -40,253 +52,345 @@ public class OlxCrawlerService {
             "en-US,en;q=0.9,pt;q=0.8",
             "es-ES,es;q=0.9,en;q=0.8"
     );
-    private static final int MIN_REQUESTS_INTERVAL_MS = 30000; // 30s
-    private static final int MAX_REQUESTS_INTERVAL_MS = 60000; // 60s
-    private static final int MAX_RETRIES = 3;
     private static final Random RANDOM = new Random();
-    public static final int DELAY = 2000;
+    private static final Duration PRAZO_PADRAO = Duration.ofMinutes(5);
+    // Estimativa usada até a primeira busca medida e peso de cada nova medida na média móvel
+    private static final Duration LATENCIA_INICIAL = Duration.ofSeconds(2);
+    private static final double PESO_LATENCIA = 0.2;
 
-    public Mono<List<Produto>> lookForProducts(String term, Integer maxPages) {
-        return Mono.fromCallable(() -> {
-                    try {
-                        HttpClient client = HttpClient.newBuilder()
-                                .followRedirects(HttpClient.Redirect.NORMAL)
-                                .build();
-                        int page = 1;
-                        boolean hasMore = true;
-                        Map<String, Produto> produtosUnicos = new LinkedHashMap<>();
-
-                        while (hasMore && page <= maxPages) {
-                            String url = BASE_URL + "?o=" + page;
-                            int retryCount = 0;
-                            boolean success = false;
-                            while (!success && retryCount < MAX_RETRIES) {
-                                String userAgent = USER_AGENTS.get(RANDOM.nextInt(USER_AGENTS.size()));
-                                String acceptLanguage = ACCEPT_LANGUAGES.get(RANDOM.nextInt(ACCEPT_LANGUAGES.size()));
-                                HttpRequest request = HttpRequest.newBuilder()
-                                        .uri(URI.create(url))
-                                        .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.7")
-                                        .header("Accept-Language", acceptLanguage)
-                                        .header("User-Agent", userAgent)
-                                        .header("Referer", "https://www.olx.com.br/")
-                                        .header("Cache-Control", "max-age=0")
-                                        .header("Connection", "keep-alive")
-                                        .build();
-                                try {
-                                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-                                    if (response.statusCode() == 200) {
-                                        String html = response.body();
-                                        List<Produto> produtosPagina = extrairProdutosDoHtml(html, term);
-                                        if (!produtosPagina.isEmpty()) {
-                                            for (Produto produto : produtosPagina) {
-                                                if (!produtosUnicos.containsKey(produto.getLink())) {
-                                                    produtosUnicos.put(produto.getLink(), produto);
-                                                }
-                                            }
-                                            page++;
-                                            int delay = MIN_REQUESTS_INTERVAL_MS + RANDOM.nextInt(MAX_REQUESTS_INTERVAL_MS - MIN_REQUESTS_INTERVAL_MS + 1);
-                                            TimeUnit.MILLISECONDS.sleep(delay);
-                                        } else {
-                                            hasMore = false;
-                                        }
-                                        success = true;
-                                    } else if (response.statusCode() == 403) {
-                                        retryCount++;
-                                        int backoff = (int) Math.pow(2, retryCount) * 1000 + RANDOM.nextInt(DELAY);
-                                        TimeUnit.MILLISECONDS.sleep(backoff);
-                                        if (retryCount >= MAX_RETRIES) {
-                                            hasMore = false;
-                                        }
-                                    } else {
-                                        hasMore = false;
-                                        success = true;
-                                    }
-                                } catch (Exception e) {
-                                    retryCount++;
-                                    int backoff = (int) Math.pow(2, retryCount) * 1000 + RANDOM.nextInt(DELAY);
-                                    TimeUnit.MILLISECONDS.sleep(backoff);
-                                    if (retryCount >= MAX_RETRIES) {
-                                        hasMore = false;
-                                    }
-                                }
-                            }
-                        }
-                        List<Produto> todosProdutos = new ArrayList<>(produtosUnicos.values());
-                        todosProdutos.sort(Comparator.comparingDouble(Produto::getPrecoNumerico));
-                        return todosProdutos.stream().limit(10).toList();
-                    } catch (Exception e) {
-                        throw new RuntimeException("Erro ao buscar produtos", e);
-                    }
-                })
-                .subscribeOn(reactor.core.scheduler.Schedulers.boundedElastic())
-                .timeout(Duration.ofMinutes(5));
+    // Página já baixada e ainda não extraída; produtos vem preenchido quando a extração não é necessária
+    private record PaginaBaixada(String url, String term, HttpResponse<String> response,
+                                 PageCacheService.PaginaEmCache emCache, List<Produto> produtos, boolean falhou) {
+
+        static PaginaBaixada pronta(List<Produto> produtos) {
+            return new PaginaBaixada(null, null, null, null, produtos, false);
+        }
+
+        // Download sem resposta aproveitável: entra na paginação como página vazia, mas marcada como falha
+        static PaginaBaixada falha() {
+            return new PaginaBaixada(null, null, null, null, List.of(), true);
+        }
     }
 
-    // Método de compatibilidade
-    public Mono<List<Produto>> lookForProducts() {
-        return lookForProducts("tracer", MAX_PAGES);
+    // Página extraída; ok é false quando o download ou a extração falharam e a lista vazia não prova nada
+    private record Pagina(int numero, List<Produto> produtos, boolean ok) {
+
+        boolean fimDaPaginacao() {
+            return ok && produtos.isEmpty();
+        }
     }
 
-    private List<Produto> extrairProdutosDoHtml(String html, String term) {
-        List<Produto> produtos = new ArrayList<>();
-
-        Pattern produtoComPrecoPattern = Pattern.compile(
-                "<a[^>]*href=\"([^\"]*)\"[^>]*>.*?" +
-                        "<h2[^>]*>([^<]+)</h2>.*?" +
-                        "(?:R\\$\\s*([\\d.,]+)|([\\d.,]+)\\s*mil)",
-                Pattern.DOTALL | Pattern.CASE_INSENSITIVE
-        );
-
-        Pattern produtoSemPrecoPattern = Pattern.compile(
-                "<a[^>]*href=\"([^\"]*)\"[^>]*>.*?" +
-                        "<h2[^>]*>([^<]+)</h2>",
-                Pattern.DOTALL | Pattern.CASE_INSENSITIVE
-        );
-
-        Matcher matcherComPreco = produtoComPrecoPattern.matcher(html);
-        while (matcherComPreco.find()) {
-            String link = matcherComPreco.group(1);
-            String titulo = matcherComPreco.group(2);
-            String precoReais = matcherComPreco.group(3);
-            String precoMil = matcherComPreco.group(4);
-
-            if (link == null || link.startsWith("#") || link.isEmpty()) {
-                continue;
-            }
+    private final CrawlerHttpClient crawlerHttpClient;
+    private final PageCacheService pageCacheService;
+    private final SearchResultCacheService searchResultCacheService;
+    private final PolitenessSchedulerService politenessSchedulerService;
+    private final CrawlerPolitenessProperties politenessProperties;
+    private final AtomicLong latenciaMediaNanos = new AtomicLong(LATENCIA_INICIAL.toNanos());
 
-            titulo = titulo.replaceAll("\\s+", " ").trim();
+    // Páginas baixadas à frente da extração: limita a fila entre a etapa de rede e a de CPU
+    @Value("${crawler.pipeline.pages-ahead:2}")
+    private int paginasAFrente;
 
-            if (!titulo.toLowerCase().contains(term.toLowerCase())) {
-                continue;
-            }
+    public Mono<List<Produto>> lookForProducts(String term, Integer maxPages) {
+        return lookForProducts(term, maxPages, PRAZO_PADRAO).map(ResultadoBusca::getProdutos);
+    }
 
-            String preco;
-            if (precoReais != null && !precoReais.trim().isEmpty()) {
-                preco = "R$ " + precoReais.trim();
-            } else if (precoMil != null && !precoMil.trim().isEmpty()) {
-                preco = precoMil.trim() + " mil";
-            } else {
-                preco = "Preço não informado";
-            }
+    /**
+     * Busca limitada por prazo: planeja quantas páginas cabem no prazo pela latência medida e pelo
+     * intervalo atual do agendador de politeness, e ao fim do prazo devolve o melhor resultado até ali,
+     * marcado como incompleto, em vez de falhar.
+     * Busca, esperas e retentativas são todas agendadas por timer: nenhuma thread fica parada durante o crawler.
+     * Buscas idênticas já completas, ou em andamento com o mesmo prazo, são atendidas pelo cache de resultados.
+     */
+    public Mono<ResultadoBusca> lookForProducts(String term, Integer maxPages, Duration prazo) {
+        return searchResultCacheService.buscar(term, maxPages, BASE_URL, prazo, () -> buscarComPrazo(term, maxPages, prazo));
+    }
 
-            if (link.startsWith("/")) {
-                link = "https://www.olx.com.br" + link;
+    private Mono<ResultadoBusca> buscarComPrazo(String term, Integer maxPages, Duration prazo) {
+        return Mono.defer(() -> {
+            int paginasPlanejadas = paginasQueCabem(prazo, maxPages);
+            AtomicInteger paginasPercorridas = new AtomicInteger();
+            AtomicBoolean fimDaPaginacao = new AtomicBoolean();
+            if (paginasPlanejadas < maxPages) {
+                log.info("Prazo de {}s comporta {} de {} páginas", prazo.toSeconds(), paginasPlanejadas, maxPages);
             }
+            return emPipeline(Flux.range(1, paginasPlanejadas), page -> baixarComRetentativas(BASE_URL + "?o=" + page, term))
+                    .takeWhile(pagina -> {
+                        fimDaPaginacao.set(pagina.fimDaPaginacao());
+                        return !pagina.produtos().isEmpty();
+                    })
+                    .map(Pagina::produtos)
+                    .doOnNext(produtosPagina -> paginasPercorridas.incrementAndGet())
+                    // Ao fim do prazo a paginação é cancelada e o que já foi coletado segue adiante
+                    .take(prazo)
+                    .flatMapIterable(produtosPagina -> produtosPagina)
+                    .distinct(Produto::getLink)
+                    .sort(Comparator.comparingDouble(Produto::getPrecoNumerico))
+                    .take(10)
+                    .collectList()
+                    .map(produtos -> {
+                        boolean completo = fimDaPaginacao.get() || paginasPercorridas.get() == maxPages;
+                        if (!completo) {
+                            log.warn("Busca por '{}' incompleta: {} de {} páginas dentro do prazo", term, paginasPercorridas.get(), maxPages);
+                        }
+                        return new ResultadoBusca(produtos, completo, paginasPercorridas.get(), paginasPlanejadas);
+                    })
+                    .onErrorMap(e -> new RuntimeException("Erro ao buscar produtos", e));
+        });
+    }
 
-            String imagem = extrairImagemProxima(html, matcherComPreco.start());
-            produtos.add(new Produto(titulo, preco, link, imagem));
-        }
+    // Cada página custa uma busca (latência média) mais a espera imposta pelo agendador ao host
+    private int paginasQueCabem(Duration prazo, int maxPages) {
+        long custoPorPagina = latenciaMediaNanos.get() + politenessSchedulerService.intervaloAtual(UriUtil.host(BASE_URL)).toNanos();
+        long cabem = prazo.toNanos() / Math.max(1, custoPorPagina);
+        return (int) Math.max(1, Math.min(maxPages, cabem));
+    }
 
-        if (produtos.isEmpty()) {
-            Matcher matcherSemPreco = produtoSemPrecoPattern.matcher(html);
-            while (matcherSemPreco.find()) {
-                String link = matcherSemPreco.group(1);
-                String titulo = matcherSemPreco.group(2);
+    /**
+     * Variante em streaming de {@link #lookForProducts(String, Integer)}: emite cada produto assim que
+     * sua página é extraída, seguido de um evento de progresso da página, e termina com um evento FIM.
+     * Os produtos saem na ordem das páginas, sem a ordenação por preço. Cancelar a assinatura
+     * interrompe a paginação e a requisição em andamento.
+     */
+    public Flux<CrawlEvent> streamProducts(String term, Integer maxPages) {
+        return Flux.defer(() -> {
+            Set<String> vistos = new HashSet<>();
+            AtomicInteger total = new AtomicInteger();
+            return emPipeline(Flux.range(1, maxPages), page -> baixarComRetentativas(BASE_URL + "?o=" + page, term))
+                    .takeWhile(pagina -> !pagina.produtos().isEmpty())
+                    .concatMap(pagina -> {
+                        List<Produto> novos = pagina.produtos().stream()
+                                .filter(produto -> vistos.add(produto.getLink()))
+                                .toList();
+                        total.addAndGet(novos.size());
+                        return Flux.fromIterable(novos)
+                                .map(CrawlEvent::produto)
+                                .concatWith(Mono.just(CrawlEvent.pagina(pagina.numero(), novos.size())));
+                    })
+                    .concatWith(Mono.fromSupplier(() -> CrawlEvent.fim(total.get())))
+                    .timeout(Duration.ofMinutes(5));
+        });
+    }
 
-                if (link == null || link.startsWith("#") || link.isEmpty() ||
-                        titulo.toLowerCase().contains("acesse sua conta")) {
-                    continue;
-                }
+    // Método de compatibilidade
+    public Mono<List<Produto>> lookForProducts() {
+        return lookForProducts("tracer", MAX_PAGES);
+    }
 
-                titulo = titulo.replaceAll("\\s+", " ").trim();
+    /**
+     * Liga as duas etapas de uma paginação: a de rede baixa as páginas em ordem, uma de cada vez e no
+     * ritmo do agendador de politeness, enquanto a de CPU extrai os anúncios das já baixadas no
+     * scheduler paralelo, dimensionado pelos núcleos. A página seguinte é pedida assim que a anterior
+     * chega, sem esperar a extração. Além da página em download, no máximo {@code paginasAFrente}
+     * aguardam ou passam pela extração; quando quem consome atrasa, a etapa de rede para. As páginas
+     * saem na ordem original.
+     */
+    private Flux<Pagina> emPipeline(Flux<Integer> paginas, Function<Integer, Mono<PaginaBaixada>> baixar) {
+        return paginas
+                .concatMap(page -> baixar.apply(page).map(baixada -> Tuples.of(page, baixada)))
+                .flatMapSequential(baixada -> extrair(baixada.getT1(), baixada.getT2()), paginasAFrente, 1);
+    }
 
-                if (!titulo.toLowerCase().contains(term.toLowerCase())) {
-                    continue;
-                }
+    // Uma lista vazia encerra a paginação: página sem produtos, status inesperado ou retentativas esgotadas
+    private Mono<PaginaBaixada> baixarComRetentativas(String url, String term) {
+        return baixar(url, term, () -> requisicaoComCabecalhosAleatorios(url))
+                .retryWhen(Retry.backoff(politenessProperties.getMaxRetries() - 1, politenessProperties.getRetryBackoff()).jitter(0.5))
+                .onErrorResume(e -> {
+                    log.warn("Desistindo de {} após {} tentativas: {}", url, politenessProperties.getMaxRetries(), e.getMessage());
+                    return Mono.just(PaginaBaixada.falha());
+                });
+    }
 
-                if (link.startsWith("/")) {
-                    link = "https://www.olx.com.br" + link;
-                }
+    /**
+     * Etapa de rede de uma página: busca condicional com os validadores da visita anterior.
+     * Uma resposta 304 já resolve a página pelo cache; a extração de uma resposta 200 fica para
+     * {@link #extrair(int, PaginaBaixada)}. Bloqueios (403/429) viram erro para quem chama decidir se tenta de novo.
+     */
+    private Mono<PaginaBaixada> baixar(String url, String term, Supplier<HttpRequest.Builder> requisicao) {
+        return Mono.defer(() -> {
+            PageCacheService.PaginaEmCache emCache = pageCacheService.buscar(url, term);
+            return enviar(pageCacheService.comValidadores(requisicao.get(), emCache).build())
+                    .flatMap(response -> {
+                        if (isBloqueio(response)) {
+                            return Mono.error(new RuntimeException("Acesso bloqueado pelo OLX (" + response.statusCode() + "): " + url));
+                        }
+                        if (response.statusCode() == 304 && emCache != null) {
+                            return Mono.just(PaginaBaixada.pronta(pageCacheService.naoModificada(emCache)));
+                        }
+                        if (response.statusCode() != 200) {
+                            log.warn("Status {} ao acessar {}", response.statusCode(), url);
+                            return Mono.just(PaginaBaixada.falha());
+                        }
+                        return Mono.just(new PaginaBaixada(url, term, response, emCache, null, false));
+                    });
+        });
+    }
 
-                String imagem = extrairImagemProxima(html, matcherSemPreco.start());
-                produtos.add(new Produto(titulo, "Preço não informado", link, imagem));
-            }
+    // Etapa de CPU: o cache de extração só faz o parse quando a região de anúncios mudou
+    private Mono<Pagina> extrair(int numero, PaginaBaixada pagina) {
+        if (pagina.produtos() != null) {
+            return Mono.just(new Pagina(numero, pagina.produtos(), !pagina.falhou()));
         }
+        return Mono.fromCallable(() -> new Pagina(numero,
+                        pageCacheService.extrair(pagina.url(), pagina.term(), pagina.response(), pagina.emCache()), true))
+                .subscribeOn(Schedulers.parallel())
+                .onErrorResume(e -> {
+                    log.error("Erro ao extrair anúncios de {}: {}", pagina.url(), e.getMessage());
+                    return Mono.just(new Pagina(numero, List.of(), false));
+                });
+    }
 
-        return produtos;
+    private HttpRequest.Builder requisicaoComCabecalhosAleatorios(String url) {
+        String userAgent = USER_AGENTS.get(RANDOM.nextInt(USER_AGENTS.size()));
+        String acceptLanguage = ACCEPT_LANGUAGES.get(RANDOM.nextInt(ACCEPT_LANGUAGES.size()));
+        return crawlerHttpClient.requisicao(url)
+                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.7")
+                .header("Accept-Language", acceptLanguage)
+                .header("User-Agent", userAgent)
+                .header("Referer", "https://www.olx.com.br/")
+                .header("Cache-Control", "max-age=0");
     }
 
-    private String extrairImagemProxima(String html, int posicaoInicial) {
-        Pattern imagemPattern = Pattern.compile("<img[^>]*src=\"([^\"]*(?:jpg|jpeg|png|webp)[^\"]*)", Pattern.CASE_INSENSITIVE);
-        Matcher imagemMatcher = imagemPattern.matcher(html);
+    // Toda requisição passa pelo agendador por host, que também aprende com o status da resposta
+    private Mono<HttpResponse<String>> enviar(HttpRequest request) {
+        String host = request.uri().getHost();
+        return politenessSchedulerService.aguardarVez(host)
+                .then(Mono.defer(() -> {
+                    long inicio = System.nanoTime();
+                    return crawlerHttpClient.send(request)
+                            .doOnNext(response -> registrarLatencia(System.nanoTime() - inicio));
+                }))
+                .doOnNext(response -> {
+                    if (isBloqueio(response)) {
+                        politenessSchedulerService.registrarBloqueio(host, retryAfter(response));
+                    } else if (response.statusCode() == 200) {
+                        politenessSchedulerService.registrarSucesso(host);
+                    }
+                });
+    }
 
-        while (imagemMatcher.find()) {
-            if (imagemMatcher.start() > posicaoInicial) {
-                return imagemMatcher.group(1);
-            }
-        }
-        return "";
+    private void registrarLatencia(long nanos) {
+        latenciaMediaNanos.accumulateAndGet(nanos, (media, amostra) -> (long) (media * (1 - PESO_LATENCIA) + amostra * PESO_LATENCIA));
     }
 
-    public List<Produto> crawlerPorUri(String uri) {
+    private static boolean isBloqueio(HttpResponse<?> response) {
+        return response.statusCode() == 403 || response.statusCode() == 429;
+    }
+
+    private static Duration retryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After")
+                .filter(valor -> valor.chars().allMatch(Character::isDigit))
+                .map(segundos -> Duration.ofSeconds(Long.parseLong(segundos)))
+                .orElse(null);
+    }
+
+    public Mono<ProdutosColetados> crawlerPorUri(String uri) {
         return crawlerMultiplePages(uri, MAX_PAGES_TO_CRAWL);
     }
 
-    public List<Produto> crawlerMultiplePages(String baseUri, int maxPages) {
-        List<Produto> todosProdutos = new ArrayList<>();
-
-        try {
-            HttpClient client = HttpClient.newBuilder()
-                    .followRedirects(HttpClient.Redirect.NORMAL)
-                    .build();
-
-            for (int page = 1; page <= maxPages; page++) {
-                try {
-                    String uriWithPage = buildUriWithPage(baseUri, page);
-                    log.info("Fazendo crawler da página {} de {}: {}", page, maxPages, uriWithPage);
-
-                    HttpRequest request = HttpRequest.newBuilder()
-                            .uri(URI.create(uriWithPage))
-                            .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.7")
-                            .header("Accept-Language", "pt-BR,pt;q=0.9,en;q=0.8")
-                            .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36")
-                            .header("Referer", "https://www.olx.com.br/")
-                            .header("Cache-Control", "max-age=0")
-                            .build();
-
-                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-                    if (response.statusCode() == 200) {
-                        String html = response.body();
-                        List<Produto> produtosPagina = extrairProdutosDoHtml(html, "");
-                        todosProdutos.addAll(produtosPagina);
-                        log.info("Página {}: {} produtos encontrados", page, produtosPagina.size());
-
-                        // Delay entre páginas para evitar bloqueio
-                        if (page < maxPages) {
-                            Thread.sleep(DELAY); // 2 segundos entre páginas
-                        }
+    public Mono<ProdutosColetados> crawlerMultiplePages(String baseUri, int maxPages) {
+        return produtosUnicos(paginas(baseUri, maxPages), maxPages);
+    }
+
+    /**
+     * Crawler incremental para buscas ordenadas por data: para de paginar depois de
+     * {@code paginasSemNovidade} páginas seguidas em que todos os anúncios já eram conhecidos.
+     */
+    public Mono<ProdutosColetados> crawlerIncremental(String uri, Set<String> anunciosConhecidos, int paginasSemNovidade) {
+        AtomicInteger seguidasSemNovidade = new AtomicInteger();
+        Flux<Pagina> paginas = paginas(uri, MAX_PAGES_TO_CRAWL)
+                .doOnNext(pagina -> {
+                    boolean temNovidade = pagina.produtos().stream()
+                            .anyMatch(produto -> !anunciosConhecidos.contains(produto.getAnuncioId()));
+                    if (temNovidade) {
+                        seguidasSemNovidade.set(0);
                     } else {
-                        log.warn("Erro ao acessar página {}: status code {}", page, response.statusCode());
-                        // Continua para próxima página em caso de erro
+                        seguidasSemNovidade.incrementAndGet();
+                    }
+                })
+                .takeUntil(pagina -> {
+                    boolean parar = seguidasSemNovidade.get() >= paginasSemNovidade;
+                    if (parar) {
+                        log.info("Crawler incremental de {} parou: {} páginas seguidas sem anúncios novos", uri, paginasSemNovidade);
                     }
+                    return parar;
+                });
+        return produtosUnicos(paginas, MAX_PAGES_TO_CRAWL);
+    }
 
-                } catch (Exception e) {
-                    log.error("Erro ao processar página {}: {}", page, e.getMessage());
-                    // Continua para próxima página em caso de erro
-                }
-            }
+    // Dentro de uma execução com checkpoints, as páginas já concluídas são reaproveitadas e as novas registradas
+    private Flux<Pagina> paginas(String baseUri, int maxPages) {
+        // O intervalo entre páginas vem do agendador por host, para evitar bloqueio
+        return Flux.deferContextual(contexto -> contexto.<CheckpointPaginas>getOrEmpty(CheckpointPaginas.class)
+                .map(checkpoint -> checkpoint.paginasConcluidas(baseUri)
+                        .flatMapMany(concluidas -> retomarPaginas(baseUri, maxPages, concluidas, checkpoint)))
+                .orElseGet(() -> paginasDe(baseUri, 1, maxPages)));
+    }
 
-            log.info("Total de produtos coletados de {} páginas: {}", maxPages, todosProdutos.size());
-
-            // Remove duplicatas baseado no link do produto
-            List<Produto> produtosSemDuplicatas = todosProdutos.stream()
-                    .collect(Collectors.toMap(
-                            Produto::getLink,
-                            produto -> produto,
-                            (existing, replacement) -> existing,
-                            LinkedHashMap::new))
-                    .values()
-                    .stream()
-                    .toList();
-
-            log.info("Produtos únicos após remoção de duplicatas: {}", produtosSemDuplicatas.size());
-            return produtosSemDuplicatas;
-
-        } catch (Exception e) {
-            log.error("Erro geral no crawler de múltiplas páginas", e);
-            throw new RuntimeException("Erro ao fazer crawler de múltiplas páginas", e);
+    // Páginas com falha não viram checkpoint: numa retomada elas são baixadas de novo
+    private Flux<Pagina> retomarPaginas(String baseUri, int maxPages,
+                                        SortedMap<Integer, List<Produto>> concluidas, CheckpointPaginas checkpoint) {
+        // Só a sequência contínua a partir da página 1 é reaproveitada
+        List<Pagina> reaproveitadas = new ArrayList<>();
+        while (reaproveitadas.size() < maxPages && concluidas.containsKey(reaproveitadas.size() + 1)) {
+            int numero = reaproveitadas.size() + 1;
+            reaproveitadas.add(new Pagina(numero, concluidas.get(numero), true));
         }
+        int primeiraPagina = reaproveitadas.size() + 1;
+        if (!reaproveitadas.isEmpty()) {
+            log.info("Retomando {} a partir da página {}", baseUri, primeiraPagina);
+        }
+        return Flux.fromIterable(reaproveitadas)
+                .concatWith(paginasDe(baseUri, primeiraPagina, maxPages)
+                        .concatMap(pagina -> pagina.ok()
+                                ? checkpoint.registrar(baseUri, pagina.numero(), pagina.produtos()).thenReturn(pagina)
+                                : Mono.just(pagina)));
+    }
+
+    // Uma página baixada e sem anúncios encerra a paginação; páginas com falha são contadas, não encerram
+    private Mono<ProdutosColetados> produtosUnicos(Flux<Pagina> paginas, int maxPages) {
+        return paginas
+                .takeUntil(Pagina::fimDaPaginacao)
+                .collectList()
+                .map(lista -> {
+                    List<Produto> produtos = new ArrayList<>();
+                    // Remove duplicatas baseado no link do produto
+                    Set<String> links = new HashSet<>();
+                    lista.forEach(pagina -> pagina.produtos().stream()
+                            .filter(produto -> links.add(produto.getLink()))
+                            .forEach(produtos::add));
+                    int falhas = (int) lista.stream().filter(pagina -> !pagina.ok()).count();
+                    boolean fim = lista.stream().anyMatch(Pagina::fimDaPaginacao);
+                    return new ProdutosColetados(produtos, falhas, fim);
+                })
+                .doOnNext(coletados -> log.info("Produtos únicos coletados (até {} páginas): {}, páginas com falha: {}",
+                        maxPages, coletados.getProdutos().size(), coletados.getPaginasComFalha()))
+                .onErrorMap(e -> {
+                    log.error("Erro geral no crawler de múltiplas páginas", e);
+                    return new RuntimeException("Erro ao fazer crawler de múltiplas páginas", e);
+                });
+    }
+
+    private Flux<Pagina> paginasDe(String baseUri, int primeiraPagina, int maxPages) {
+        return emPipeline(Flux.range(primeiraPagina, maxPages - primeiraPagina + 1), page -> baixarPagina(baseUri, page, maxPages))
+                .doOnNext(pagina -> log.info("Página {}: {} produtos encontrados{}", pagina.numero(), pagina.produtos().size(),
+                        pagina.ok() ? "" : " (falha)"));
+    }
+
+    private Mono<PaginaBaixada> baixarPagina(String baseUri, int page, int maxPages) {
+        String uriWithPage = buildUriWithPage(baseUri, page);
+        return Mono.fromRunnable(() -> log.info("Fazendo crawler da página {} de {}: {}", page, maxPages, uriWithPage))
+                .then(baixar(uriWithPage, "", () -> crawlerHttpClient.requisicao(uriWithPage)
+                        .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.7")
+                        .header("Accept-Language", "pt-BR,pt;q=0.9,en;q=0.8")
+                        .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36")
+                        .header("Referer", "https://www.olx.com.br/")
+                        .header("Cache-Control", "max-age=0")))
+                .onErrorResume(e -> {
+                    log.error("Erro ao processar página {}: {}", page, e.getMessage());
+                    // Continua para próxima página em caso de erro
+                    return Mono.just(PaginaBaixada.falha());
+                });
     }
 
     private String buildUriWithPage(String baseUri, int page) {
@@ -0,0 +1,125 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.Produto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache das páginas de resultado já extraídas, por URL e termo de busca.
+ * Guarda os validadores HTTP (ETag/Last-Modified) para buscas condicionais e o hash da região
+ * de anúncios: uma resposta 304, ou 200 com a mesma região, reaproveita os produtos sem parse.
+ * A memória é limitada pelo número de entradas, descartando as menos usadas.
+ */
+@Slf4j
+@Service
+public class PageCacheService {
+
+    public record PaginaEmCache(String chave, String etag, String lastModified, long hashRegiao, List<Produto> produtos) {
+    }
+
+    private final ProdutoExtractor produtoExtractor;
+    private final Map<String, PaginaEmCache> paginas;
+    private final Counter naoModificadas;
+    private final Counter regiaoIgual;
+    private final Counter falhas;
+
+    public PageCacheService(ProdutoExtractor produtoExtractor,
+                            MeterRegistry meterRegistry,
+                            @Value("${crawler.page-cache.max-entries:1000}") int maxEntries) {
+        this.produtoExtractor = produtoExtractor;
+        this.paginas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PaginaEmCache> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.naoModificadas = resultado(meterRegistry, "not_modified");
+        this.regiaoIgual = resultado(meterRegistry, "unchanged");
+        this.falhas = resultado(meterRegistry, "miss");
+        Gauge.builder("crawler.page_cache.size", this, PageCacheService::tamanho)
+                .description("Páginas guardadas no cache de extração")
+                .register(meterRegistry);
+        Gauge.builder("crawler.page_cache.hit_ratio", this, PageCacheService::taxaDeAcerto)
+                .description("Fração das páginas respondidas sem parse")
+                .register(meterRegistry);
+    }
+
+    public synchronized PaginaEmCache buscar(String url, String term) {
+        return paginas.get(chave(url, term));
+    }
+
+    public HttpRequest.Builder comValidadores(HttpRequest.Builder builder, PaginaEmCache emCache) {
+        if (emCache != null) {
+            if (emCache.etag() != null) {
+                builder.header("If-None-Match", emCache.etag());
+            }
+            if (emCache.lastModified() != null) {
+                builder.header("If-Modified-Since", emCache.lastModified());
+            }
+        }
+        return builder;
+    }
+
+    // Resposta 304: o servidor confirmou que a página não mudou
+    public List<Produto> naoModificada(PaginaEmCache emCache) {
+        naoModificadas.increment();
+        return emCache.produtos();
+    }
+
+    // Resposta 200: só faz o parse quando a região de anúncios mudou desde a última visita
+    public List<Produto> extrair(String url, String term, HttpResponse<String> response, PaginaEmCache emCache) {
+        String html = response.body();
+        long hash = produtoExtractor.hashDaRegiaoDeAnuncios(html);
+
+        List<Produto> produtos;
+        if (emCache != null && emCache.hashRegiao() == hash) {
+            regiaoIgual.increment();
+            produtos = emCache.produtos();
+        } else {
+            falhas.increment();
+            produtos = List.copyOf(produtoExtractor.extrair(html, term));
+        }
+
+        String chave = chave(url, term);
+        PaginaEmCache atualizada = new PaginaEmCache(chave,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null),
+                hash,
+                produtos);
+        synchronized (this) {
+            paginas.put(chave, atualizada);
+        }
+        return produtos;
+    }
+
+    private static String chave(String url, String term) {
+        return url + '\n' + (term == null ? "" : term.toLowerCase());
+    }
+
+    private synchronized int tamanho() {
+        return paginas.size();
+    }
+
+    private double taxaDeAcerto() {
+        double acertos = naoModificadas.count() + regiaoIgual.count();
+        double total = acertos + falhas.count();
+        return total == 0 ? 0 : acertos / total;
+    }
+
+    private static Counter resultado(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("crawler.page_cache.requests")
+                .description("Páginas buscadas, por resultado no cache de extração")
+                .tag("result", resultado)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,129 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerPolitenessProperties;
+import br.olx.crawler.dto.EstadoHost;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Agenda todas as requisições do crawler por host com um token bucket compartilhado.
+ * A taxa de cada host se adapta às respostas: sobe devagar a cada sucesso (aditivo) e cai
+ * pela metade a cada 403/429 (multiplicativo), de modo que crawlers simultâneos dividem a
+ * mesma cota em vez de somarem requisições contra o site.
+ */
+@Slf4j
+@Service
+public class PolitenessSchedulerService {
+
+    private final CrawlerPolitenessProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Balde> baldes = new ConcurrentHashMap<>();
+
+    public PolitenessSchedulerService(CrawlerPolitenessProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Completa quando o host liberar a próxima requisição; a espera é feita por timer, sem bloquear threads
+    public Mono<Void> aguardarVez(String host) {
+        return Mono.defer(() -> {
+            Duration espera = balde(host).reservar();
+            return espera.isZero() ? Mono.empty() : Mono.delay(espera).then();
+        });
+    }
+
+    public void registrarSucesso(String host) {
+        balde(host).sucesso();
+    }
+
+    public void registrarBloqueio(String host, Duration retryAfter) {
+        Balde balde = balde(host);
+        balde.bloqueio(retryAfter);
+        log.warn("Host {} bloqueou requisição; taxa reduzida para {}/s", host, String.format("%.3f", balde.taxa));
+    }
+
+    public List<EstadoHost> estado() {
+        return baldes.entrySet().stream()
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .sorted(Comparator.comparing(EstadoHost::getHost))
+                .toList();
+    }
+
+    public Duration intervaloAtual(String host) {
+        return Duration.ofNanos(balde(host).intervaloNanos());
+    }
+
+    private Balde balde(String host) {
+        return baldes.computeIfAbsent(host, novoHost -> {
+            Balde balde = new Balde(properties.getInitialRate());
+            Gauge.builder("crawler.politeness.rate", balde, b -> b.taxa)
+                    .description("Requisições por segundo liberadas para o host")
+                    .tag("host", novoHost)
+                    .register(meterRegistry);
+            Gauge.builder("crawler.politeness.blocked", balde, b -> b.bloqueios)
+                    .description("Respostas 403/429 recebidas do host")
+                    .tag("host", novoHost)
+                    .register(meterRegistry);
+            return balde;
+        });
+    }
+
+    private final class Balde {
+        // Voláteis porque os gauges leem sem o lock do balde
+        private volatile double taxa;
+        // Instante (System.nanoTime) em que a próxima ficha fica disponível
+        private long proximaLiberacao = System.nanoTime();
+        private long requisicoes;
+        private long sucessos;
+        private volatile long bloqueios;
+        private Instant ultimoBloqueio;
+
+        private Balde(double taxaInicial) {
+            this.taxa = taxaInicial;
+        }
+
+        private synchronized long intervaloNanos() {
+            return (long) (1_000_000_000L / taxa);
+        }
+
+        private synchronized Duration reservar() {
+            long agora = System.nanoTime();
+            long intervalo = intervaloNanos();
+            // Fichas acumuladas durante o ócio valem no máximo o burst configurado
+            long inicio = Math.max(proximaLiberacao, agora - (properties.getBurst() - 1L) * intervalo);
+            long jitter = (long) (intervalo * properties.getJitter() * ThreadLocalRandom.current().nextDouble());
+            proximaLiberacao = inicio + intervalo + jitter;
+            requisicoes++;
+            return Duration.ofNanos(Math.max(0, inicio - agora));
+        }
+
+        private synchronized void sucesso() {
+            sucessos++;
+            taxa = Math.min(properties.getMaxRate(), taxa + properties.getIncreaseStep());
+        }
+
+        private synchronized void bloqueio(Duration retryAfter) {
+            bloqueios++;
+            ultimoBloqueio = Instant.now();
+            taxa = Math.max(properties.getMinRate(), taxa * properties.getDecreaseFactor());
+            // Esfria o host antes da próxima ficha: o novo intervalo ou o Retry-After, o que for maior
+            long pausa = Math.max(intervaloNanos(), retryAfter == null ? 0 : retryAfter.toNanos());
+            proximaLiberacao = Math.max(proximaLiberacao, System.nanoTime() + pausa);
+        }
+
+        private synchronized EstadoHost snapshot(String host) {
+            return new EstadoHost(host, taxa, intervaloNanos() / 1_000_000, requisicoes, sucessos, bloqueios, ultimoBloqueio);
+        }
+    }
+}
@@ -0,0 +1,582 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.Produto;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extrai os anúncios de uma página de resultados do OLX percorrendo o documento uma única vez.
+ * Quando a página traz o estado embutido (__NEXT_DATA__) os anúncios são lidos com o parser
+ * streaming do Jackson; caso contrário um scanner linear de tags indexa âncoras, títulos e preços
+ * e reproduz o resultado das antigas expressões regulares sem backtracking.
+ */
+@Slf4j
+@Component
+public class ProdutoExtractor {
+
+    private static final String OLX_URL = "https://www.olx.com.br";
+    private static final String PRECO_NAO_INFORMADO = "Preço não informado";
+    // Também usados pelo CorpoPaginaSubscriber para achar o fim do estado embutido durante a leitura
+    static final String MARCADOR_ESTADO_PAGINA = "id=\"__NEXT_DATA__\"";
+    static final String FIM_SCRIPT = "</script>";
+    private static final String CAMPO_ANUNCIOS = "ads";
+
+    private final JsonFactory jsonFactory;
+
+    public ProdutoExtractor(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public List<Produto> extrair(String html, String term) {
+        String termo = term == null ? "" : term;
+
+        int inicioEstado = html.indexOf(MARCADOR_ESTADO_PAGINA);
+        if (inicioEstado >= 0) {
+            int inicioJson = html.indexOf('>', inicioEstado) + 1;
+            int fimJson = html.indexOf(FIM_SCRIPT, inicioJson);
+            if (inicioJson > 0 && fimJson > inicioJson) {
+                try {
+                    List<Produto> produtos = extrairDoEstadoDaPagina(html.substring(inicioJson, fimJson), termo);
+                    if (!produtos.isEmpty()) {
+                        return produtos;
+                    }
+                } catch (IOException e) {
+                    log.debug("Estado da página inválido, usando scanner de tags: {}", e.getMessage());
+                }
+            }
+        }
+
+        return extrairDasTags(html, termo);
+    }
+
+    /**
+     * Se o estado embutido da página, já lido por inteiro, traz algum anúncio (sem filtro de termo).
+     * Só então o {@link CorpoPaginaSubscriber} pode parar a leitura no fim dele: sem anúncios no estado,
+     * {@link #extrair} recorre ao scanner de tags, que precisa do HTML completo.
+     */
+    boolean estadoTemAnuncios(String html) {
+        int inicioEstado = html.indexOf(MARCADOR_ESTADO_PAGINA);
+        int inicioJson = inicioEstado < 0 ? -1 : html.indexOf('>', inicioEstado) + 1;
+        int fimJson = inicioJson <= 0 ? -1 : html.indexOf(FIM_SCRIPT, inicioJson);
+        return fimJson > inicioJson && temAnuncios(html.substring(inicioJson, fimJson));
+    }
+
+    /**
+     * Hash (FNV-1a de 64 bits) só da região da página de onde os anúncios são extraídos: o estado
+     * embutido quando ele traz anúncios; senão, como no {@link #extrair}, da âncora do primeiro título até o preço que segue o último,
+     * sem o conteúdo de scripts. Mudanças fora dessa região (cabeçalho, rodapé, scripts de
+     * rastreamento, carimbos de hora) não invalidam a extração anterior.
+     */
+    public long hashDaRegiaoDeAnuncios(String html) {
+        int inicio = 0;
+        int fim = html.length();
+        boolean pularScripts = false;
+
+        int inicioEstado = html.indexOf(MARCADOR_ESTADO_PAGINA);
+        int inicioJson = inicioEstado < 0 ? -1 : html.indexOf('>', inicioEstado) + 1;
+        int fimJson = inicioJson <= 0 ? -1 : html.indexOf(FIM_SCRIPT, inicioJson);
+        if (fimJson > inicioJson && temAnuncios(html.substring(inicioJson, fimJson))) {
+            inicio = inicioJson;
+            fim = fimJson;
+        } else {
+            int primeiroTitulo = indiceIgnorandoCaixa(html, "<h2", 0);
+            if (primeiroTitulo >= 0) {
+                int ancora = ultimoIndiceIgnorandoCaixa(html, "<a", primeiroTitulo);
+                inicio = ancora >= 0 ? ancora : primeiroTitulo;
+                int fimUltimoTitulo = ultimoIndiceIgnorandoCaixa(html, "</h2>", html.length()) + 5;
+                int fimPreco = fimDoPrimeiroPreco(html, fimUltimoTitulo);
+                fim = fimPreco >= 0 ? fimPreco : fimUltimoTitulo;
+            }
+            pularScripts = true;
+        }
+
+        long hash = 0xcbf29ce484222325L;
+        for (int i = inicio; i < fim; i++) {
+            char c = html.charAt(i);
+            if (pularScripts && c == '<' && html.regionMatches(true, i, "<script", 0, 7)) {
+                int fimScript = indiceIgnorandoCaixa(html, FIM_SCRIPT, i);
+                if (fimScript < 0) {
+                    break;
+                }
+                i = fimScript + FIM_SCRIPT.length() - 1;
+                continue;
+            }
+            hash ^= c;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private boolean temAnuncios(String json) {
+        try {
+            return !extrairDoEstadoDaPagina(json, "").isEmpty();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private List<Produto> extrairDoEstadoDaPagina(String json, String termo) throws IOException {
+        List<Produto> comPreco = new ArrayList<>();
+        List<Produto> semPreco = new ArrayList<>();
+
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME && CAMPO_ANUNCIOS.equals(parser.getCurrentName())
+                        && parser.nextToken() == JsonToken.START_ARRAY) {
+                    lerAnuncios(parser, termo, comPreco, semPreco);
+                }
+            }
+        }
+
+        // Mesma regra do HTML: anúncios sem preço só entram quando nenhum anúncio da página tem preço
+        return comPreco.isEmpty() ? semPreco : comPreco;
+    }
+
+    private void lerAnuncios(JsonParser parser, String termo, List<Produto> comPreco, List<Produto> semPreco) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            String titulo = null;
+            String preco = null;
+            String link = null;
+            String imagem = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = parser.getCurrentName();
+                JsonToken valor = parser.nextToken();
+                // O valor é sempre consumido, mesmo quando o campo repete: um objeto ou lista deixado
+                // para trás faria o parser ler os campos aninhados como se fossem do anúncio
+                switch (campo) {
+                    case "subject", "title" -> {
+                        String texto = textoOuNulo(parser, valor);
+                        titulo = titulo == null ? texto : titulo;
+                    }
+                    case "price" -> preco = textoOuNulo(parser, valor);
+                    case "url", "friendlyUrl" -> {
+                        String texto = textoOuNulo(parser, valor);
+                        link = link == null ? texto : link;
+                    }
+                    case "thumbnail" -> imagem = textoOuNulo(parser, valor);
+                    case "images" -> {
+                        String primeira = primeiraImagem(parser, valor);
+                        imagem = imagem == null ? primeira : imagem;
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (titulo == null || link == null || link.isEmpty() || link.startsWith("#")) {
+                continue;
+            }
+            // Como no scanner de tags, o aviso de login só é descartado entre os anúncios sem preço
+            boolean avisoDeLogin = contemIgnorandoCaixa(titulo, "acesse sua conta");
+            titulo = normalizarEspacos(titulo);
+            if (!contemIgnorandoCaixa(titulo, termo)) {
+                continue;
+            }
+            if (link.startsWith("/")) {
+                link = OLX_URL + link;
+            }
+
+            String precoFormatado = formatarPreco(preco);
+            Produto produto = new Produto(titulo, precoFormatado, link, imagem == null ? "" : imagem);
+            if (!PRECO_NAO_INFORMADO.equals(precoFormatado)) {
+                comPreco.add(produto);
+            } else if (!avisoDeLogin) {
+                semPreco.add(produto);
+            }
+        }
+    }
+
+    private String textoOuNulo(JsonParser parser, JsonToken valor) throws IOException {
+        if (valor == JsonToken.VALUE_STRING || valor == JsonToken.VALUE_NUMBER_INT || valor == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private String primeiraImagem(JsonParser parser, JsonToken valor) throws IOException {
+        if (valor != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        String primeira = null;
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String campo = parser.getCurrentName();
+                    JsonToken campoValor = parser.nextToken();
+                    if (primeira == null && "original".equals(campo)) {
+                        primeira = textoOuNulo(parser, campoValor);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if (token == JsonToken.VALUE_STRING && primeira == null) {
+                primeira = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return primeira;
+    }
+
+    private String formatarPreco(String preco) {
+        if (preco == null || preco.isEmpty()) {
+            return PRECO_NAO_INFORMADO;
+        }
+        List<Preco> precos = new ArrayList<>();
+        indexarPrecos(preco, precos);
+        if (precos.isEmpty()) {
+            // Valores numéricos crus (ex.: 49500) viram "R$ 49500"
+            return Character.isDigit(preco.charAt(0)) ? "R$ " + preco : PRECO_NAO_INFORMADO;
+        }
+        return precos.get(0).formatar(preco);
+    }
+
+    private interface Marcador {
+        int inicio();
+    }
+
+    private record Ancora(int inicio, int fimTag, int hrefInicio, int hrefFim) implements Marcador {
+    }
+
+    private record Titulo(int inicio, int fim, int textoInicio, int textoFim) implements Marcador {
+    }
+
+    private record Imagem(int inicio, int urlInicio, int urlFim) implements Marcador {
+    }
+
+    private record Preco(int inicio, int fim, int valorInicio, int valorFim, boolean emMil) implements Marcador {
+        String formatar(String html) {
+            String valor = html.substring(valorInicio, valorFim);
+            return emMil ? valor + " mil" : "R$ " + valor;
+        }
+    }
+
+    private List<Produto> extrairDasTags(String html, String termo) {
+        List<Ancora> ancoras = new ArrayList<>();
+        List<Titulo> titulos = new ArrayList<>();
+        List<Imagem> imagens = new ArrayList<>();
+        List<Preco> precos = new ArrayList<>();
+
+        // Única passada pelo documento: indexa as posições de todas as âncoras, títulos, imagens e preços
+        int tamanho = html.length();
+        for (int i = 0; i < tamanho; i++) {
+            if (html.charAt(i) == '<' && i + 1 < tamanho) {
+                char proximo = html.charAt(i + 1);
+                if (proximo == 'a' || proximo == 'A') {
+                    Ancora ancora = lerAncora(html, i);
+                    if (ancora != null) {
+                        ancoras.add(ancora);
+                    }
+                } else if (proximo == 'h' || proximo == 'H') {
+                    Titulo titulo = lerTitulo(html, i);
+                    if (titulo != null) {
+                        titulos.add(titulo);
+                    }
+                } else if (proximo == 'i' || proximo == 'I') {
+                    Imagem imagem = lerImagem(html, i);
+                    if (imagem != null) {
+                        imagens.add(imagem);
+                    }
+                }
+            }
+        }
+        indexarPrecos(html, precos);
+
+        List<Produto> produtos = new ArrayList<>();
+
+        int posicao = 0;
+        while (true) {
+            Ancora ancora = primeiroAPartirDe(ancoras, posicao);
+            Titulo titulo = ancora == null ? null : primeiroAPartirDe(titulos, ancora.fimTag());
+            Preco preco = titulo == null ? null : primeiroAPartirDe(precos, titulo.fim());
+            if (preco == null) {
+                break;
+            }
+            posicao = preco.fim();
+
+            String link = html.substring(ancora.hrefInicio(), ancora.hrefFim());
+            if (link.startsWith("#") || link.isEmpty()) {
+                continue;
+            }
+
+            String textoTitulo = normalizarEspacos(html.substring(titulo.textoInicio(), titulo.textoFim()));
+            if (!contemIgnorandoCaixa(textoTitulo, termo)) {
+                continue;
+            }
+
+            if (link.startsWith("/")) {
+                link = OLX_URL + link;
+            }
+
+            String imagem = imagemProxima(imagens, html, ancora.inicio());
+            produtos.add(new Produto(textoTitulo, preco.formatar(html), link, imagem));
+        }
+
+        if (produtos.isEmpty()) {
+            posicao = 0;
+            while (true) {
+                Ancora ancora = primeiroAPartirDe(ancoras, posicao);
+                Titulo titulo = ancora == null ? null : primeiroAPartirDe(titulos, ancora.fimTag());
+                if (titulo == null) {
+                    break;
+                }
+                posicao = titulo.fim();
+
+                String link = html.substring(ancora.hrefInicio(), ancora.hrefFim());
+                String textoTitulo = html.substring(titulo.textoInicio(), titulo.textoFim());
+                if (link.startsWith("#") || link.isEmpty() || contemIgnorandoCaixa(textoTitulo, "acesse sua conta")) {
+                    continue;
+                }
+
+                textoTitulo = normalizarEspacos(textoTitulo);
+                if (!contemIgnorandoCaixa(textoTitulo, termo)) {
+                    continue;
+                }
+
+                if (link.startsWith("/")) {
+                    link = OLX_URL + link;
+                }
+
+                String imagem = imagemProxima(imagens, html, ancora.inicio());
+                produtos.add(new Produto(textoTitulo, PRECO_NAO_INFORMADO, link, imagem));
+            }
+        }
+
+        return produtos;
+    }
+
+    /**
+     * Equivale a {@code <a[^>]*href="([^"]*)"[^>]*>}: o href considerado é o último da tag,
+     * como no casamento guloso da expressão original.
+     */
+    private Ancora lerAncora(String html, int inicio) {
+        int fimAbertura = html.indexOf('>', inicio + 2);
+        if (fimAbertura < 0) {
+            return null;
+        }
+        int href = -1;
+        for (int i = fimAbertura - 6; i >= inicio + 2; i--) {
+            if (html.regionMatches(true, i, "href=\"", 0, 6)) {
+                href = i;
+                break;
+            }
+        }
+        if (href < 0) {
+            return null;
+        }
+        int hrefInicio = href + 6;
+        int hrefFim = html.indexOf('"', hrefInicio);
+        if (hrefFim < 0) {
+            return null;
+        }
+        int fimTag = html.indexOf('>', hrefFim + 1);
+        if (fimTag < 0) {
+            return null;
+        }
+        return new Ancora(inicio, fimTag + 1, hrefInicio, hrefFim);
+    }
+
+    // Equivale a <h2[^>]*>([^<]+)</h2>
+    private Titulo lerTitulo(String html, int inicio) {
+        if (!html.regionMatches(true, inicio, "<h2", 0, 3)) {
+            return null;
+        }
+        int fimAbertura = html.indexOf('>', inicio + 3);
+        if (fimAbertura < 0) {
+            return null;
+        }
+        int textoInicio = fimAbertura + 1;
+        int textoFim = html.indexOf('<', textoInicio);
+        if (textoFim <= textoInicio || !html.regionMatches(true, textoFim, "</h2>", 0, 5)) {
+            return null;
+        }
+        return new Titulo(inicio, textoFim + 5, textoInicio, textoFim);
+    }
+
+    // Equivale a (?:R\$\s*([\d.,]+)|([\d.,]+)\s*mil), registrando cada ocorrência na ordem do texto
+    private static void indexarPrecos(String texto, List<Preco> precos) {
+        for (int i = 0; i < texto.length(); i++) {
+            Preco preco = lerPreco(texto, i);
+            if (preco != null) {
+                precos.add(preco);
+            }
+        }
+    }
+
+    private static int fimDoPrimeiroPreco(String texto, int desde) {
+        for (int i = Math.max(0, desde); i < texto.length(); i++) {
+            Preco preco = lerPreco(texto, i);
+            if (preco != null) {
+                return preco.fim();
+            }
+        }
+        return -1;
+    }
+
+    // Preço que começa exatamente na posição, ou null
+    private static Preco lerPreco(String texto, int i) {
+        char c = texto.charAt(i);
+        if ((c == 'R' || c == 'r') && i + 1 < texto.length() && texto.charAt(i + 1) == '$') {
+            int valorInicio = pularEspacos(texto, i + 2);
+            int valorFim = fimDoNumero(texto, valorInicio);
+            return valorFim > valorInicio ? new Preco(i, valorFim, valorInicio, valorFim, false) : null;
+        }
+        if (isCaractereDePreco(c) && (i == 0 || !isCaractereDePreco(texto.charAt(i - 1)))) {
+            int valorFim = fimDoNumero(texto, i);
+            int sufixo = pularEspacos(texto, valorFim);
+            if (texto.regionMatches(true, sufixo, "mil", 0, 3)) {
+                return new Preco(i, sufixo + 3, i, valorFim, true);
+            }
+        }
+        return null;
+    }
+
+    // Busca binária pelo primeiro marcador que começa em posicao ou depois dela
+    private static <T extends Marcador> T primeiroAPartirDe(List<T> marcadores, int posicao) {
+        int baixo = 0;
+        int alto = marcadores.size();
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (marcadores.get(meio).inicio() < posicao) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo < marcadores.size() ? marcadores.get(baixo) : null;
+    }
+
+    /**
+     * Equivale a {@code <img[^>]*src="([^"]*(?:jpg|jpeg|png|webp)[^"]*)}: entre os atributos src
+     * da tag vale o último cujo valor tem extensão de imagem.
+     */
+    private Imagem lerImagem(String html, int inicio) {
+        if (!html.regionMatches(true, inicio, "<img", 0, 4)) {
+            return null;
+        }
+        int fimAbertura = html.indexOf('>', inicio + 4);
+        int limite = fimAbertura < 0 ? html.length() : fimAbertura;
+        for (int i = limite - 5; i >= inicio + 4; i--) {
+            if (html.regionMatches(true, i, "src=\"", 0, 5)) {
+                int urlInicio = i + 5;
+                int urlFim = html.indexOf('"', urlInicio);
+                if (urlFim < 0) {
+                    urlFim = html.length();
+                }
+                if (temExtensaoDeImagem(html, urlInicio, urlFim)) {
+                    return new Imagem(inicio, urlInicio, urlFim);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean temExtensaoDeImagem(String html, int inicio, int fim) {
+        for (int i = inicio; i < fim; i++) {
+            if (contemNaPosicao(html, i, fim, "jpg") || contemNaPosicao(html, i, fim, "jpeg")
+                    || contemNaPosicao(html, i, fim, "png") || contemNaPosicao(html, i, fim, "webp")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contemNaPosicao(String texto, int posicao, int limite, String trecho) {
+        return posicao + trecho.length() <= limite && texto.regionMatches(true, posicao, trecho, 0, trecho.length());
+    }
+
+    // Primeira imagem que começa depois da posição do anúncio, resolvida no índice de imagens da página
+    private static String imagemProxima(List<Imagem> imagens, String html, int posicao) {
+        Imagem imagem = primeiroAPartirDe(imagens, posicao + 1);
+        return imagem == null ? "" : html.substring(imagem.urlInicio(), imagem.urlFim());
+    }
+
+    private static boolean isCaractereDePreco(char c) {
+        return (c >= '0' && c <= '9') || c == '.' || c == ',';
+    }
+
+    private static int fimDoNumero(String texto, int inicio) {
+        int i = inicio;
+        while (i < texto.length() && isCaractereDePreco(texto.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // Mesmo conjunto de \s das expressões regulares do Java
+    private static boolean isEspaco(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int pularEspacos(String texto, int inicio) {
+        int i = inicio;
+        while (i < texto.length() && isEspaco(texto.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // Equivale a texto.replaceAll("\\s+", " ").trim() sem compilar expressão regular
+    static String normalizarEspacos(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length());
+        boolean espacoPendente = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (isEspaco(c)) {
+                espacoPendente = true;
+            } else {
+                if (espacoPendente) {
+                    sb.append(' ');
+                    espacoPendente = false;
+                }
+                sb.append(c);
+            }
+        }
+        if (espacoPendente) {
+            sb.append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+    static boolean contemIgnorandoCaixa(String texto, String termo) {
+        return indiceIgnorandoCaixa(texto, termo, 0) >= 0;
+    }
+
+    private static int indiceIgnorandoCaixa(String texto, String termo, int desde) {
+        int tamanhoTermo = termo.length();
+        for (int i = desde, limite = texto.length() - tamanhoTermo; i <= limite; i++) {
+            if (texto.regionMatches(true, i, termo, 0, tamanhoTermo)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Última ocorrência que começa antes de {@code ate}
+    private static int ultimoIndiceIgnorandoCaixa(String texto, String termo, int ate) {
+        for (int i = Math.min(ate, texto.length()) - termo.length(); i >= 0; i--) {
+            if (texto.regionMatches(true, i, termo, 0, termo.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,66 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.AlteracaoAnuncio;
+import br.olx.crawler.dto.Produto;
+import br.olx.crawler.util.HtmlTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Monta o HTML do e-mail de resumo a partir de templates compilados na carga da classe.
+ * Cada thread reaproveita o mesmo buffer entre renderizações; buffers que cresceram demais são descartados.
+ */
+@Component
+public class ResumoEmailRenderer {
+
+    private static final int MAX_BUFFER_REAPROVEITADO = 256 * 1024;
+
+    private static final HtmlTemplate INICIO = HtmlTemplate.compilar("<html><body>");
+    private static final HtmlTemplate CABECALHO_LINK = HtmlTemplate.compilar(
+            "<h3><a href='{{uri}}' target='_blank'>{{uri}}</a></h3>"
+                    + "<table border='1' cellpadding='5' cellspacing='0' style='border-collapse:collapse;'>"
+                    + "<tr><th>Alteração</th><th>Nome do anúncio</th><th>Preço</th><th>Link</th></tr>");
+    private static final HtmlTemplate LINHA = HtmlTemplate.compilar(
+            "<tr><td>{{alteracao}}</td><td>{{titulo}}</td><td>{{preco}}</td>"
+                    + "<td><a href='{{link}}' target='_blank'>Ver anúncio</a></td></tr>");
+    private static final HtmlTemplate FIM_LINK = HtmlTemplate.compilar("</table><br/>");
+    private static final HtmlTemplate FIM = HtmlTemplate.compilar("</body></html>");
+
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(16 * 1024));
+
+    public String renderizar(Map<String, List<AlteracaoAnuncio>> alteracoesPorLink) {
+        StringBuilder corpo = buffer();
+        INICIO.renderizar(Map.of(), corpo);
+        for (Map.Entry<String, List<AlteracaoAnuncio>> entry : alteracoesPorLink.entrySet()) {
+            CABECALHO_LINK.renderizar(Map.of("uri", entry.getKey()), corpo);
+            for (AlteracaoAnuncio alteracao : entry.getValue()) {
+                Produto p = alteracao.getProduto();
+                LINHA.renderizar(Map.of(
+                        "alteracao", alteracao.descricao(),
+                        "titulo", valor(p.getTitulo()),
+                        "preco", valor(p.getPreco()),
+                        "link", valor(p.getLink())), corpo);
+            }
+            FIM_LINK.renderizar(Map.of(), corpo);
+        }
+        FIM.renderizar(Map.of(), corpo);
+        return corpo.toString();
+    }
+
+    private StringBuilder buffer() {
+        StringBuilder buffer = buffers.get();
+        if (buffer.capacity() > MAX_BUFFER_REAPROVEITADO) {
+            buffer = new StringBuilder(16 * 1024);
+            buffers.set(buffer);
+        }
+        buffer.setLength(0);
+        return buffer;
+    }
+
+    // Map.of não aceita nulos
+    private static String valor(String texto) {
+        return texto == null ? "" : texto;
+    }
+}
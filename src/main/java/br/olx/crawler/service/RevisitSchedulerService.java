@@ -0,0 +1,209 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerRevisitProperties;
+import br.olx.crawler.dto.ResultadoCrawlLink;
+import br.olx.crawler.entity.Link;
+import br.olx.crawler.repository.LinkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Agenda a visita de cada link no seu próprio intervalo, mantendo os links numa fila de prioridade
+ * pela próxima visita. O intervalo se adapta ao link: cai quando a visita encontra alterações e
+ * cresce quando não encontra nada, dentro de limites globais que cada link pode sobrescrever.
+ * Cada agendamento recebe um atraso aleatório para que as visitas não se concentrem no mesmo instante.
+ * Uma visita com páginas que falharam (bloqueio, timeout) conta como "sem alterações", para que um site
+ * que nos bloqueia não seja visitado com mais frequência.
+ */
+@Slf4j
+@Service
+public class RevisitSchedulerService {
+
+    private record Agendamento(String linkId, Instant vencimento) {
+    }
+
+    private final LinkRepository linkRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CrawlerScheduledService crawlerScheduledService;
+    private final ClusterLeaseService clusterLeaseService;
+    private final CrawlerRevisitProperties properties;
+    private final PriorityQueue<Agendamento> fila = new PriorityQueue<>(Comparator.comparing(Agendamento::vencimento));
+    private final AtomicBoolean emAndamento = new AtomicBoolean();
+    private volatile Instant proximaRecarga = Instant.MIN;
+
+    public RevisitSchedulerService(LinkRepository linkRepository,
+                                   ReactiveMongoTemplate mongoTemplate,
+                                   CrawlerScheduledService crawlerScheduledService,
+                                   ClusterLeaseService clusterLeaseService,
+                                   CrawlerRevisitProperties properties) {
+        this.linkRepository = linkRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.crawlerScheduledService = crawlerScheduledService;
+        this.clusterLeaseService = clusterLeaseService;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "#{@crawlerRevisitProperties.tick.toMillis()}")
+    public void tick() {
+        // Um ciclo por vez: links vencidos durante um ciclo longo ficam para o próximo
+        if (!properties.isEnabled() || !emAndamento.compareAndSet(false, true)) {
+            return;
+        }
+        recarregarSeNecessario()
+                .then(Mono.defer(this::visitarVencidos))
+                .doOnError(e -> log.error("Erro no ciclo de revisita", e))
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(signal -> emAndamento.set(false))
+                .subscribe();
+    }
+
+    // A fila é reconstruída do banco periodicamente para enxergar links novos, desativados ou revisitados por outra instância
+    private Mono<Void> recarregarSeNecessario() {
+        Instant agora = Instant.now();
+        if (agora.isBefore(proximaRecarga)) {
+            return Mono.empty();
+        }
+        return linkRepository.findByEnabledTrue()
+                .flatMap(link -> link.getProximaVisita() != null
+                        ? Mono.just(new Agendamento(link.getId(), link.getProximaVisita()))
+                        : agendarPrimeiraVisita(link))
+                .collectList()
+                .doOnNext(agendamentos -> {
+                    synchronized (fila) {
+                        fila.clear();
+                        fila.addAll(agendamentos);
+                    }
+                    proximaRecarga = agora.plus(properties.getReloadInterval());
+                    log.debug("Fila de revisita recarregada com {} links", agendamentos.size());
+                })
+                .then();
+    }
+
+    private Mono<Void> visitarVencidos() {
+        List<Agendamento> vencidos = retirarVencidos(Instant.now());
+        if (vencidos.isEmpty()) {
+            return Mono.empty();
+        }
+        return linkRepository.findAllById(vencidos.stream().map(Agendamento::linkId).toList())
+                .filter(Link::isEnabled)
+                .concatMap(this::confirmarVencimento)
+                // Cada vencimento gravado no link identifica a execução para a reserva entre instâncias; um link de
+                // outra instância volta para a fila e no próximo ciclo é relido do banco, já com o novo vencimento ou sem dono
+                .concatMap(link -> clusterLeaseService.linksDesteNo(Flux.just(link), "revisita:" + link.getProximaVisita())
+                        .switchIfEmpty(Mono.<Link>fromRunnable(() ->
+                                enfileirar(new Agendamento(link.getId(), Instant.now().plus(properties.getTick()))))))
+                .collectList()
+                .filter(links -> !links.isEmpty())
+                .flatMap(links -> crawlerScheduledService.revisitar(links)
+                        .flatMapMany(Flux::fromIterable)
+                        .concatMap(this::reagendar)
+                        .then()
+                        .onErrorResume(e -> {
+                            log.error("Erro ao revisitar {} links; reagendando como visita sem alterações", links.size(), e);
+                            return Flux.fromIterable(links)
+                                    .concatMap(link -> reagendar(link, false))
+                                    .then();
+                        }));
+    }
+
+    // Outra instância pode ter visitado o link depois da última recarga: nesse caso só atualiza a fila
+    private Mono<Link> confirmarVencimento(Link link) {
+        if (link.getProximaVisita() != null && link.getProximaVisita().isAfter(Instant.now())) {
+            enfileirar(new Agendamento(link.getId(), link.getProximaVisita()));
+            return Mono.empty();
+        }
+        return Mono.just(link);
+    }
+
+    private Mono<Void> reagendar(ResultadoCrawlLink resultado) {
+        if (resultado.getPaginasComFalha() > 0) {
+            log.warn("Link {}: {} páginas falharam na revisita", resultado.getLink().getUri(), resultado.getPaginasComFalha());
+        }
+        boolean mudou = resultado.getPaginasComFalha() == 0
+                && resultado.getAlteracoes() != null && !resultado.getAlteracoes().isEmpty();
+        return reagendar(resultado.getLink(), mudou);
+    }
+
+    private Mono<Void> reagendar(Link link, boolean mudou) {
+        double fator = mudou ? properties.getSpeedUpFactor() : properties.getSlowDownFactor();
+        Duration novoIntervalo = limitar(link, Duration.ofMillis((long) (intervaloAtual(link).toMillis() * fator)));
+        log.info("Link {}: {}; próxima visita em {} min", link.getUri(),
+                mudou ? "com alterações" : "sem alterações", novoIntervalo.toMinutes());
+        return agendar(link, novoIntervalo, novoIntervalo);
+    }
+
+    private Mono<Agendamento> agendarPrimeiraVisita(Link link) {
+        return agendar(link, Duration.ZERO, intervaloAtual(link))
+                .then(Mono.fromSupplier(() -> new Agendamento(link.getId(), link.getProximaVisita())));
+    }
+
+    private Mono<Void> agendar(Link link, Duration espera, Duration intervalo) {
+        long jitterMs = ThreadLocalRandom.current().nextLong(Math.max(1, properties.getJitterWindow().toMillis()));
+        Instant proximaVisita = Instant.now().plus(espera).plusMillis(jitterMs);
+        link.setProximaVisita(proximaVisita);
+        link.setIntervaloRevisitaMinutos(intervalo.toMinutes());
+        enfileirar(new Agendamento(link.getId(), proximaVisita));
+        Update update = new Update()
+                .set("proximaVisita", proximaVisita)
+                .set("intervaloRevisitaMinutos", intervalo.toMinutes());
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(link.getId())), update, Link.class)
+                .then();
+    }
+
+    private List<Agendamento> retirarVencidos(Instant agora) {
+        List<Agendamento> vencidos = new ArrayList<>();
+        synchronized (fila) {
+            while (!fila.isEmpty() && !fila.peek().vencimento().isAfter(agora)) {
+                vencidos.add(fila.poll());
+            }
+        }
+        return vencidos;
+    }
+
+    private void enfileirar(Agendamento agendamento) {
+        synchronized (fila) {
+            fila.removeIf(existente -> existente.linkId().equals(agendamento.linkId()));
+            fila.add(agendamento);
+        }
+    }
+
+    private Duration intervaloAtual(Link link) {
+        Duration intervalo = link.getIntervaloRevisitaMinutos() != null
+                ? Duration.ofMinutes(link.getIntervaloRevisitaMinutos())
+                : properties.getInitialInterval();
+        return limitar(link, intervalo);
+    }
+
+    private Duration limitar(Link link, Duration intervalo) {
+        Duration minimo = intervaloMinimo(link);
+        Duration maximo = link.getIntervaloMaximoMinutos() != null
+                ? Duration.ofMinutes(link.getIntervaloMaximoMinutos())
+                : properties.getMaxInterval();
+        if (intervalo.compareTo(minimo) < 0) {
+            return minimo;
+        }
+        return intervalo.compareTo(maximo) > 0 ? maximo : intervalo;
+    }
+
+    private Duration intervaloMinimo(Link link) {
+        return link.getIntervaloMinimoMinutos() != null
+                ? Duration.ofMinutes(link.getIntervaloMinimoMinutos())
+                : properties.getMinInterval();
+    }
+}
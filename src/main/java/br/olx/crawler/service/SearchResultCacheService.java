@@ -0,0 +1,134 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.ResultadoBusca;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache dos resultados de busca por (termo, páginas, URL base), com validade e número de entradas limitados.
+ * Buscas idênticas simultâneas e com o mesmo prazo compartilham o crawler em andamento em vez de iniciarem
+ * outro; como a busca compartilhada começou antes, quem entra depois nunca espera além do próprio prazo.
+ * Só resultados completos ficam guardados depois de prontos, e valem para qualquer prazo; buscas
+ * interrompidas pelo prazo ou com erro saem do cache assim que terminam.
+ */
+@Slf4j
+@Service
+public class SearchResultCacheService {
+
+    private final Duration ttl;
+    private final Map<String, Entrada> entradas;
+    private final Counter acertos;
+    private final Counter falhas;
+    private final Counter coalescidas;
+
+    public SearchResultCacheService(MeterRegistry meterRegistry,
+                                    @Value("${crawler.search-cache.ttl:1m}") Duration ttl,
+                                    @Value("${crawler.search-cache.max-entries:100}") int maxEntries) {
+        this.ttl = ttl;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.acertos = resultado(meterRegistry, "hit");
+        this.falhas = resultado(meterRegistry, "miss");
+        this.coalescidas = resultado(meterRegistry, "coalesced");
+        Gauge.builder("crawler.search_cache.size", this, SearchResultCacheService::tamanho)
+                .description("Buscas guardadas ou em andamento no cache de resultados")
+                .register(meterRegistry);
+    }
+
+    public Mono<ResultadoBusca> buscar(String term, int maxPages, String baseUrl, Duration prazo,
+                                       Supplier<Mono<ResultadoBusca>> busca) {
+        return Mono.defer(() -> {
+            String chave = chave(term, maxPages, baseUrl);
+            String chaveEmAndamento = chave + '\n' + prazo.toMillis();
+            Entrada entrada;
+            synchronized (this) {
+                entrada = entradas.get(chave);
+                if (entrada != null && entrada.expirada()) {
+                    entradas.remove(chave);
+                    entrada = null;
+                }
+                if (entrada == null) {
+                    entrada = entradas.get(chaveEmAndamento);
+                }
+                if (entrada == null) {
+                    Entrada nova = new Entrada();
+                    nova.resultado = busca.get()
+                            .doOnNext(resultado -> concluir(chave, chaveEmAndamento, nova, resultado))
+                            .doOnError(e -> descartar(chaveEmAndamento, nova))
+                            .doOnCancel(() -> descartar(chaveEmAndamento, nova))
+                            .cache();
+                    entradas.put(chaveEmAndamento, nova);
+                    falhas.increment();
+                    return nova.resultado;
+                }
+            }
+            if (entrada.emAndamento()) {
+                log.debug("Busca {} já em andamento com o mesmo prazo; aguardando o mesmo resultado", chaveEmAndamento);
+                coalescidas.increment();
+            } else {
+                acertos.increment();
+            }
+            return entrada.resultado;
+        });
+    }
+
+    // A busca sai da chave com prazo; se completa, passa a valer na chave sem prazo até expirar
+    private synchronized void concluir(String chave, String chaveEmAndamento, Entrada entrada, ResultadoBusca resultado) {
+        if (!entradas.remove(chaveEmAndamento, entrada)) {
+            return;
+        }
+        if (resultado.isCompleto()) {
+            entrada.expiraEmNanos = System.nanoTime() + ttl.toNanos();
+            entradas.put(chave, entrada);
+        }
+    }
+
+    private synchronized void descartar(String chave, Entrada entrada) {
+        entradas.remove(chave, entrada);
+    }
+
+    private static String chave(String term, int maxPages, String baseUrl) {
+        String termo = term == null ? "" : term.trim().toLowerCase(Locale.ROOT);
+        return baseUrl + '\n' + termo + '\n' + maxPages;
+    }
+
+    private synchronized int tamanho() {
+        return entradas.size();
+    }
+
+    private static Counter resultado(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("crawler.search_cache.requests")
+                .description("Buscas de produtos, por resultado no cache de resultados")
+                .tag("result", resultado)
+                .register(meterRegistry);
+    }
+
+    private static final class Entrada {
+        private Mono<ResultadoBusca> resultado;
+        // Zero enquanto a busca está em andamento
+        private volatile long expiraEmNanos;
+
+        private boolean emAndamento() {
+            return expiraEmNanos == 0;
+        }
+
+        private boolean expirada() {
+            return !emAndamento() && System.nanoTime() - expiraEmNanos > 0;
+        }
+    }
+}
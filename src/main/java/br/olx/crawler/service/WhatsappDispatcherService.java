@@ -0,0 +1,229 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.WhatsappDispatchProperties;
+import br.olx.crawler.entity.WhatsappOutbox;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Despacha as notificações de WhatsApp: agrupa os blocos de vários links em mensagens até o
+ * tamanho máximo, envia com concorrência e taxa limitadas e, quando um envio falha, guarda a
+ * mensagem em {@code whatsapp_outbox} para novas tentativas com backoff exponencial.
+ * Uma falha nunca interrompe o envio das demais mensagens. Uma mensagem já entregue nunca é
+ * reenviada por uma falha ao gravar o seu status: só a gravação é repetida.
+ */
+@Slf4j
+@Service
+public class WhatsappDispatcherService {
+
+    // Tempo em que uma mensagem da fila fica reservada para a instância que vai reenviá-la
+    private static final Duration RESERVA_RETENTATIVA = Duration.ofMinutes(5);
+    // Novas tentativas de gravar o status de uma mensagem entregue, com backoff a partir de 100 ms
+    private static final int TENTATIVAS_STATUS = 5;
+
+    private final WhatsappMessageService whatsappMessageService;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final WhatsappDispatchProperties properties;
+    private final AtomicBoolean reenviando = new AtomicBoolean();
+    // Instante (System.nanoTime) em que o próximo envio é liberado
+    private long proximaLiberacao = System.nanoTime();
+    // Mensagens da fila entregues cujo status não foi gravado; quando voltam da fila só o status é gravado
+    private final Set<String> entreguesSemStatus = ConcurrentHashMap.newKeySet();
+
+    public WhatsappDispatcherService(WhatsappMessageService whatsappMessageService,
+                                     ReactiveMongoTemplate mongoTemplate,
+                                     WhatsappDispatchProperties properties) {
+        this.whatsappMessageService = whatsappMessageService;
+        this.mongoTemplate = mongoTemplate;
+        this.properties = properties;
+    }
+
+    // Retorna quantas mensagens foram entregues agora; as demais ficam na fila de retentativas
+    public Mono<Long> enviar(List<String> blocos) {
+        List<String> mensagens = agrupar(blocos);
+        log.info("Enviando {} blocos em {} mensagens de WhatsApp", blocos.size(), mensagens.size());
+        return Flux.fromIterable(mensagens)
+                .flatMap(mensagem -> enviarComLimite(mensagem)
+                        .thenReturn(true)
+                        .onErrorResume(e -> {
+                            log.warn("Falha ao enviar mensagem de WhatsApp, enfileirando para nova tentativa: {}", e.getMessage());
+                            return enfileirar(mensagem, e).thenReturn(false);
+                        }), properties.getMaxConcurrency())
+                .filter(Boolean::booleanValue)
+                .count();
+    }
+
+    @Scheduled(fixedDelayString = "#{@whatsappDispatchProperties.retryPoll.toMillis()}")
+    public void reenviarPendentes() {
+        if (!reenviando.compareAndSet(false, true)) {
+            return;
+        }
+        Flux.defer(this::reservarPendente)
+                .repeat()
+                .takeWhile(pendente -> pendente.getId() != null)
+                .concatMap(this::reenviar)
+                .doOnError(e -> log.error("Erro ao processar a fila de WhatsApp", e))
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(signal -> reenviando.set(false))
+                .subscribe();
+    }
+
+    // Empacota blocos inteiros enquanto couberem; um bloco maior que o limite é quebrado por linhas
+    private List<String> agrupar(List<String> blocos) {
+        int limite = properties.getMaxMessageLength();
+        List<String> mensagens = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        for (String bloco : blocos) {
+            for (String parte : partes(bloco, limite)) {
+                if (parte.isBlank()) {
+                    continue;
+                }
+                if (atual.length() > 0 && atual.length() + 1 + parte.length() > limite) {
+                    mensagens.add(atual.toString());
+                    atual.setLength(0);
+                }
+                if (atual.length() > 0) {
+                    atual.append('\n');
+                }
+                atual.append(parte);
+            }
+        }
+        if (atual.length() > 0) {
+            mensagens.add(atual.toString());
+        }
+        return mensagens;
+    }
+
+    private static List<String> partes(String bloco, int limite) {
+        if (bloco.length() <= limite) {
+            return List.of(bloco);
+        }
+        List<String> partes = new ArrayList<>();
+        StringBuilder parte = new StringBuilder();
+        for (String linha : bloco.split("\n", -1)) {
+            while (linha.length() > limite) {
+                partes.add(linha.substring(0, limite));
+                linha = linha.substring(limite);
+            }
+            if (parte.length() > 0 && parte.length() + 1 + linha.length() > limite) {
+                partes.add(parte.toString());
+                parte.setLength(0);
+            }
+            if (parte.length() > 0) {
+                parte.append('\n');
+            }
+            parte.append(linha);
+        }
+        if (parte.length() > 0) {
+            partes.add(parte.toString());
+        }
+        return partes;
+    }
+
+    private Mono<Boolean> enviarComLimite(String mensagem) {
+        return aguardarVez().then(whatsappMessageService.sendMessage(properties.getNumber(), mensagem));
+    }
+
+    // Espaça os envios pelo intervalo mínimo, esperando por timer
+    private Mono<Void> aguardarVez() {
+        return Mono.defer(() -> {
+            long espera;
+            synchronized (this) {
+                long agora = System.nanoTime();
+                long inicio = Math.max(agora, proximaLiberacao);
+                proximaLiberacao = inicio + properties.getMinInterval().toNanos();
+                espera = inicio - agora;
+            }
+            return espera == 0 ? Mono.empty() : Mono.delay(Duration.ofNanos(espera)).then();
+        });
+    }
+
+    private Mono<WhatsappOutbox> enfileirar(String mensagem, Throwable erro) {
+        Instant agora = Instant.now();
+        WhatsappOutbox pendente = WhatsappOutbox.builder()
+                .numero(properties.getNumber())
+                .mensagem(mensagem)
+                .status(WhatsappOutbox.Status.PENDENTE)
+                .tentativas(1)
+                .proximaTentativa(agora.plus(properties.getRetryBackoff()))
+                .ultimoErro(erro.getMessage())
+                .criadaEm(agora)
+                .build();
+        return mongoTemplate.insert(pendente);
+    }
+
+    // Reserva atomicamente uma mensagem vencida, para que só uma instância a reenvie; vazia vira sentinela de fim
+    private Mono<WhatsappOutbox> reservarPendente() {
+        Instant agora = Instant.now();
+        Query query = Query.query(Criteria.where("status").is(WhatsappOutbox.Status.PENDENTE)
+                .and("proximaTentativa").lte(agora));
+        Update update = Update.update("proximaTentativa", agora.plus(RESERVA_RETENTATIVA));
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), WhatsappOutbox.class)
+                .defaultIfEmpty(new WhatsappOutbox());
+    }
+
+    // Só uma falha do envio conta como tentativa; uma falha ao gravar o status não leva a outro envio
+    private Mono<Void> reenviar(WhatsappOutbox pendente) {
+        if (entreguesSemStatus.contains(pendente.getId())) {
+            return marcarEnviada(pendente);
+        }
+        return aguardarVez()
+                .then(whatsappMessageService.sendMessage(pendente.getNumero(), pendente.getMensagem()))
+                .thenReturn(true)
+                .onErrorResume(e -> registrarFalha(pendente, e).thenReturn(false))
+                .flatMap(enviada -> enviada ? marcarEnviada(pendente) : Mono.<Void>empty());
+    }
+
+    private Mono<Void> marcarEnviada(WhatsappOutbox pendente) {
+        entreguesSemStatus.add(pendente.getId());
+        Update update = new Update()
+                .set("status", WhatsappOutbox.Status.ENVIADA)
+                .set("finalizadaEm", Instant.now())
+                .inc("tentativas", 1);
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(pendente.getId())), update, WhatsappOutbox.class)
+                .retryWhen(Retry.backoff(TENTATIVAS_STATUS, Duration.ofMillis(100)))
+                .doOnNext(resultado -> {
+                    entreguesSemStatus.remove(pendente.getId());
+                    log.info("Mensagem {} reenviada na tentativa {}", pendente.getId(), pendente.getTentativas() + 1);
+                })
+                .onErrorResume(e -> {
+                    log.error("Mensagem {} entregue, mas o status não foi gravado; só o status será gravado de novo: {}",
+                            pendente.getId(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Void> registrarFalha(WhatsappOutbox pendente, Throwable e) {
+        int tentativas = pendente.getTentativas() + 1;
+        Update update = new Update()
+                .set("tentativas", tentativas)
+                .set("ultimoErro", e.getMessage());
+        if (tentativas >= properties.getMaxAttempts()) {
+            log.error("Mensagem {} descartada após {} tentativas: {}", pendente.getId(), tentativas, e.getMessage());
+            update.set("status", WhatsappOutbox.Status.DESCARTADA).set("finalizadaEm", Instant.now());
+        } else {
+            Duration espera = properties.getRetryBackoff().multipliedBy(1L << (tentativas - 1));
+            update.set("proximaTentativa", Instant.now().plus(espera));
+        }
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(pendente.getId())), update, WhatsappOutbox.class)
+                .then();
+    }
+}
@@ -1,5 +1,6 @@
 package br.olx.crawler.service;
 
+import br.olx.crawler.dto.WhatsappResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -36,13 +37,13 @@ public class WhatsappMessageService {
                 .header("Content-Type", "application/json")
                 .bodyValue(requestBody) // Usa Map em vez de String concatenada
                 .retrieve()
-                .bodyToMono(String.class)
+                .bodyToMono(WhatsappResponse.class)
                 .doOnNext(response -> log.info("Resposta da API WhatsApp: {}", response))
                 .map(response -> {
-                    boolean success = response.contains("\"success\":true");
-                    if (!success) {
+                    if (!response.isSuccess()) {
                         log.warn("API WhatsApp retornou sucesso=false. Resposta: {}", response);
-                        throw new RuntimeException("API WhatsApp retornou sucesso=false: " + response);
+                        throw new RuntimeException("API WhatsApp retornou sucesso=false: "
+                                + (response.getError() != null ? response.getError() : response.getMessage()));
                     }
                     return true;
                 })
@@ -0,0 +1,64 @@
+package br.olx.crawler.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template HTML com marcadores {@code {{nome}}}, compilado uma única vez em trechos literais e
+ * marcadores. A renderização escreve direto no buffer de quem chama, escapando os valores.
+ */
+public final class HtmlTemplate {
+
+    private final String[] literais;
+    private final String[] marcadores;
+
+    private HtmlTemplate(String[] literais, String[] marcadores) {
+        this.literais = literais;
+        this.marcadores = marcadores;
+    }
+
+    public static HtmlTemplate compilar(String template) {
+        List<String> literais = new ArrayList<>();
+        List<String> marcadores = new ArrayList<>();
+        int posicao = 0;
+        while (true) {
+            int inicio = template.indexOf("{{", posicao);
+            int fim = inicio < 0 ? -1 : template.indexOf("}}", inicio + 2);
+            if (fim < 0) {
+                literais.add(template.substring(posicao));
+                break;
+            }
+            literais.add(template.substring(posicao, inicio));
+            marcadores.add(template.substring(inicio + 2, fim).trim());
+            posicao = fim + 2;
+        }
+        return new HtmlTemplate(literais.toArray(String[]::new), marcadores.toArray(String[]::new));
+    }
+
+    // Marcadores sem valor no mapa ficam vazios
+    public void renderizar(Map<String, ?> valores, StringBuilder destino) {
+        for (int i = 0; i < marcadores.length; i++) {
+            destino.append(literais[i]);
+            Object valor = valores.get(marcadores[i]);
+            if (valor != null) {
+                escapar(valor.toString(), destino);
+            }
+        }
+        destino.append(literais[marcadores.length]);
+    }
+
+    public static void escapar(CharSequence texto, StringBuilder destino) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '&' -> destino.append("&amp;");
+                case '<' -> destino.append("&lt;");
+                case '>' -> destino.append("&gt;");
+                case '"' -> destino.append("&quot;");
+                case '\'' -> destino.append("&#39;");
+                default -> destino.append(c);
+            }
+        }
+    }
+}
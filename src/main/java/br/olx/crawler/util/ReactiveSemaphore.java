@@ -0,0 +1,75 @@
+package br.olx.crawler.util;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Semáforo não bloqueante: quem não consegue permissão fica numa fila e é assinado
+ * quando outra execução termina, sem prender nenhuma thread enquanto espera.
+ */
+public class ReactiveSemaphore {
+
+    private final Queue<Sinks.One<Boolean>> aguardando = new ArrayDeque<>();
+    private int disponiveis;
+
+    public ReactiveSemaphore(int permissoes) {
+        this.disponiveis = permissoes;
+    }
+
+    public <T> Mono<T> withPermit(Mono<T> fonte) {
+        return Mono.defer(() -> {
+            Sinks.One<Boolean> permissao = Sinks.one();
+            boolean concedida;
+            synchronized (this) {
+                concedida = disponiveis > 0;
+                if (concedida) {
+                    disponiveis--;
+                } else {
+                    aguardando.add(permissao);
+                }
+            }
+
+            Mono<T> execucao = fonte.doFinally(signal -> liberar());
+            if (concedida) {
+                return execucao;
+            }
+            return permissao.asMono()
+                    .doOnCancel(() -> desistir(permissao))
+                    .then(execucao);
+        });
+    }
+
+    public synchronized int getDisponiveis() {
+        return disponiveis;
+    }
+
+    public synchronized int getAguardando() {
+        return aguardando.size();
+    }
+
+    private void liberar() {
+        Sinks.One<Boolean> proximo;
+        synchronized (this) {
+            proximo = aguardando.poll();
+            if (proximo == null) {
+                disponiveis++;
+            }
+        }
+        if (proximo != null) {
+            proximo.tryEmitValue(Boolean.TRUE);
+        }
+    }
+
+    // Cancelado enquanto esperava: sai da fila ou, se a permissão já tinha sido repassada, devolve-a
+    private void desistir(Sinks.One<Boolean> permissao) {
+        synchronized (this) {
+            if (aguardando.remove(permissao)) {
+                return;
+            }
+        }
+        liberar();
+    }
+}
@@ -0,0 +1,92 @@
+package br.olx.crawler.util;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+public class UriUtil {
+
+    private UriUtil() {
+    }
+
+    // Host da URL, ou a própria URL quando ela não pode ser interpretada
+    public static String host(String uri) {
+        try {
+            String host = URI.create(uri).getHost();
+            return host != null ? host : uri;
+        } catch (IllegalArgumentException e) {
+            return uri;
+        }
+    }
+
+    // Valor cru do primeiro parâmetro da query string com esse nome
+    public static Optional<String> parametro(String uri, String nome) {
+        int inicioQuery = uri.indexOf('?');
+        if (inicioQuery < 0) {
+            return Optional.empty();
+        }
+        int fimQuery = uri.indexOf('#', inicioQuery);
+        String query = uri.substring(inicioQuery + 1, fimQuery < 0 ? uri.length() : fimQuery);
+        for (String par : query.split("&")) {
+            int igual = par.indexOf('=');
+            String chave = igual < 0 ? par : par.substring(0, igual);
+            if (chave.equals(nome)) {
+                return Optional.of(igual < 0 ? "" : par.substring(igual + 1));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Forma canônica de uma URL de busca, usada para reconhecer o mesmo link escrito de jeitos diferentes:
+     * esquema e host em minúsculas, sem porta padrão, credenciais ou fragmento, e a query ordenada por nome
+     * sem o parâmetro de página ({@code o}, que o crawler acrescenta sozinho) nem parâmetros de rastreamento.
+     * Lança {@link IllegalArgumentException} quando a URL não é http(s) absoluta.
+     */
+    public static String canonica(String uri) {
+        URI parsed;
+        try {
+            parsed = new URI(uri.trim());
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("URL inválida: " + e.getMessage(), e);
+        }
+        String esquema = parsed.getScheme() == null ? null : parsed.getScheme().toLowerCase(Locale.ROOT);
+        if (!"http".equals(esquema) && !"https".equals(esquema)) {
+            throw new IllegalArgumentException("URL deve ser http ou https");
+        }
+        if (parsed.getHost() == null) {
+            throw new IllegalArgumentException("URL sem host");
+        }
+
+        StringBuilder canonica = new StringBuilder(uri.length())
+                .append(esquema).append("://")
+                .append(parsed.getHost().toLowerCase(Locale.ROOT));
+        int porta = parsed.getPort();
+        if (porta != -1 && !(porta == 80 && esquema.equals("http")) && !(porta == 443 && esquema.equals("https"))) {
+            canonica.append(':').append(porta);
+        }
+        String caminho = parsed.getRawPath();
+        canonica.append(caminho == null || caminho.isEmpty() ? "/" : caminho);
+
+        String query = parsed.getRawQuery();
+        if (query != null) {
+            List<String> pares = new ArrayList<>();
+            for (String par : query.split("&")) {
+                String chave = par.indexOf('=') < 0 ? par : par.substring(0, par.indexOf('='));
+                if (!chave.isEmpty() && !chave.equals("o") && !chave.startsWith("utm_")) {
+                    pares.add(par);
+                }
+            }
+            // Ordenação estável: parâmetros repetidos mantêm a ordem original entre si
+            pares.sort(Comparator.comparing(par -> par.indexOf('=') < 0 ? par : par.substring(0, par.indexOf('='))));
+            if (!pares.isEmpty()) {
+                canonica.append('?').append(String.join("&", pares));
+            }
+        }
+        return canonica.toString();
+    }
+}
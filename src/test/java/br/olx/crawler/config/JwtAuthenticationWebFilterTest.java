@@ -0,0 +1,98 @@
+package br.olx.crawler.config;
+
+import br.olx.crawler.service.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.WebFilterChain;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtAuthenticationWebFilterTest {
+
+    private static final String SECRET = "mySecretKey123456789012345678901234567890";
+
+    private final JwtService jwtService = new JwtService(SECRET, 60_000, 1000);
+    private final JwtAuthenticationWebFilter filter = new JwtAuthenticationWebFilter(jwtService);
+    // Autenticação vista pela cadeia em cada chamada; vazia quando a requisição seguiu sem autenticação
+    private final List<Optional<Authentication>> chamadas = new CopyOnWriteArrayList<>();
+    private final WebFilterChain chain = exchange -> ReactiveSecurityContextHolder.getContext()
+            .map(SecurityContext::getAuthentication)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .doOnNext(chamadas::add)
+            .then();
+
+    @Test
+    void tokenValidoChamaACadeiaUmaVezAutenticada() {
+        String token = jwtService.generateToken("admin", Set.of("ADMIN"));
+
+        StepVerifier.create(filter.filter(requisicao("Bearer " + token), chain)).verifyComplete();
+
+        assertThat(chamadas).singleElement().satisfies(autenticacao -> {
+            assertThat(autenticacao).isPresent();
+            assertThat(autenticacao.get().getName()).isEqualTo("admin");
+            assertThat(autenticacao.get().getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+        });
+    }
+
+    @Test
+    void tokenInvalidoChamaACadeiaUmaVezSemAutenticacao() {
+        String token = jwtService.generateToken("admin", Set.of("ADMIN"));
+        String adulterado = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        StepVerifier.create(filter.filter(requisicao("Bearer " + adulterado), chain)).verifyComplete();
+
+        assertThat(chamadas).containsExactly(Optional.empty());
+    }
+
+    @Test
+    void semCabecalhoChamaACadeiaUmaVezSemAutenticacao() {
+        StepVerifier.create(filter.filter(requisicao(null), chain)).verifyComplete();
+
+        assertThat(chamadas).containsExactly(Optional.empty());
+    }
+
+    // Métricas e politeness não são públicos: o token é lido para a regra de ADMIN do SecurityConfig
+    @Test
+    void actuatorAlemDeHealthEInfoEAutenticado() {
+        String token = jwtService.generateToken("admin", Set.of("ADMIN"));
+
+        StepVerifier.create(filter.filter(requisicao("/actuator/politeness", "Bearer " + token), chain)).verifyComplete();
+
+        assertThat(chamadas).singleElement().satisfies(autenticacao -> assertThat(autenticacao).isPresent());
+    }
+
+    // Um token repetido não é verificado de novo: o principal sai do cache do JwtService
+    @Test
+    void tokenRepetidoReaproveitaAVerificacao() {
+        String token = jwtService.generateToken("admin", Set.of("ADMIN"));
+
+        StepVerifier.create(filter.filter(requisicao("Bearer " + token), chain)).verifyComplete();
+
+        assertThat(jwtService.verificar(token)).containsSame(jwtService.verificar(token).orElseThrow());
+    }
+
+    private static MockServerWebExchange requisicao(String authorization) {
+        return requisicao("/api/v1/links", authorization);
+    }
+
+    private static MockServerWebExchange requisicao(String path, String authorization) {
+        MockServerHttpRequest.BaseBuilder<?> requisicao = MockServerHttpRequest.get(path);
+        if (authorization != null) {
+            requisicao.header(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        return MockServerWebExchange.from(requisicao.build());
+    }
+}
@@ -0,0 +1,52 @@
+package br.olx.crawler.controller;
+
+import br.olx.crawler.config.AuthLoginProperties;
+import br.olx.crawler.service.AuthService;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class AuthControllerTest {
+
+    private static final String PROXY = "172.18.0.2";
+
+    private final AuthLoginProperties properties = new AuthLoginProperties();
+    private final AuthController controller = new AuthController(mock(AuthService.class), properties);
+
+    @Test
+    void semProxyConfiadoAOrigemEOEnderecoDaConexao() {
+        assertThat(controller.origem(requisicao(PROXY, "203.0.113.7"))).isEqualTo(PROXY);
+    }
+
+    @Test
+    void atrasDoProxyConfiadoAOrigemVemDoXForwardedFor() {
+        properties.setTrustedProxies(List.of(PROXY));
+
+        assertThat(controller.origem(requisicao(PROXY, "203.0.113.7"))).isEqualTo("203.0.113.7");
+        // O cliente pode escrever o que quiser antes; vale o endereço anexado pelo proxy
+        assertThat(controller.origem(requisicao(PROXY, "1.2.3.4, 203.0.113.7"))).isEqualTo("203.0.113.7");
+        assertThat(controller.origem(requisicao(PROXY, "203.0.113.7, " + PROXY))).isEqualTo("203.0.113.7");
+        assertThat(controller.origem(requisicao(PROXY, null))).isEqualTo(PROXY);
+    }
+
+    @Test
+    void xForwardedForDeQuemNaoEProxyEIgnorado() {
+        properties.setTrustedProxies(List.of(PROXY));
+
+        assertThat(controller.origem(requisicao("198.51.100.9", "203.0.113.7"))).isEqualTo("198.51.100.9");
+    }
+
+    private static MockServerHttpRequest requisicao(String remoto, String encaminhado) {
+        MockServerHttpRequest.BaseBuilder<?> builder = MockServerHttpRequest.post("/api/v1/auth/login")
+                .remoteAddress(new InetSocketAddress(remoto, 43210));
+        if (encaminhado != null) {
+            builder.header("X-Forwarded-For", encaminhado);
+        }
+        return builder.build();
+    }
+}
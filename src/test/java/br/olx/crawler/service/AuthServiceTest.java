@@ -0,0 +1,171 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.AuthLoginProperties;
+import br.olx.crawler.dto.JwtResponse;
+import br.olx.crawler.dto.LoginRequest;
+import br.olx.crawler.entity.User;
+import br.olx.crawler.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuthServiceTest {
+
+    private static final String USUARIO = "elieser";
+    private static final String SENHA = "123";
+
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(10);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AuthLoginProperties properties = new AuthLoginProperties();
+    private AuthService service;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User(null, USUARIO, passwordEncoder.encode(SENHA), Set.of("ADMIN"), true);
+        when(userRepository.findByUsername(anyString())).thenReturn(Mono.empty());
+        when(userRepository.findByUsername(USUARIO)).thenReturn(Mono.just(user));
+        properties.setMaxConcurrent(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.encerrar();
+    }
+
+    @Test
+    void origemQueVariaOUsuarioEsbarraNoLimitePorOrigem() {
+        service = authService();
+
+        for (int i = 0; i < properties.getMaxFailuresPerOrigin(); i++) {
+            assertThat(status(login("usuario" + i, "errada", "10.0.0.1"))).isNull();
+        }
+
+        assertThat(status(login("usuario-novo", "errada", "10.0.0.1"))).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(status(login("usuario-novo", "errada", "10.0.0.2"))).isNull();
+    }
+
+    @Test
+    void loginCertoNaoZeraAsFalhasDaOrigem() {
+        service = authService();
+        for (int i = 0; i < properties.getMaxFailuresPerOrigin() - 1; i++) {
+            login("usuario" + i, "errada", "10.0.0.1").onErrorResume(e -> Mono.empty()).block();
+        }
+
+        assertThat(login(USUARIO, SENHA, "10.0.0.1").block()).extracting(JwtResponse::getUsername).isEqualTo(USUARIO);
+        login("mais-um", "errada", "10.0.0.1").onErrorResume(e -> Mono.empty()).block();
+
+        assertThat(status(login(USUARIO, SENHA, "10.0.0.1"))).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void muitasChavesNovasNaoApagamUmBloqueio() {
+        properties.setMaxTrackedKeys(100);
+        service = authService();
+        for (int i = 0; i < properties.getMaxFailures(); i++) {
+            login(USUARIO, "errada", "10.0.0.1").onErrorResume(e -> Mono.empty()).block();
+        }
+
+        // Numa cache LRU, 10 000 pares novos descartariam o registro do bloqueio
+        Map<HttpStatus, Long> respostas = Flux.range(0, 10_000)
+                .concatMap(i -> login("usuario" + i, "errada", "10.1." + (i / 250) + "." + (i % 250))
+                        .map(resposta -> HttpStatus.OK)
+                        .onErrorResume(e -> Mono.just(e instanceof ResponseStatusException r
+                                ? HttpStatus.valueOf(r.getStatusCode().value()) : HttpStatus.UNAUTHORIZED)))
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()))
+                .block();
+
+        assertThat(respostas).containsKey(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(status(login(USUARIO, SENHA, "10.0.0.1"))).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * Tempestade de logins num servidor Reactor Netty com um único event loop: o BCrypt roda no pool de
+     * autenticação, então o excesso é recusado com 503 e uma rota simples do mesmo loop segue respondendo.
+     */
+    @Test
+    void tempestadeDeLoginsNaoOcupaOEventLoop() {
+        properties.setMaxQueued(20);
+        service = authService();
+        LoopResources loop = LoopResources.create("loop", 1, true);
+        DisposableServer servidor = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .runOn(loop)
+                .route(rotas -> rotas
+                        .post("/login", (requisicao, resposta) -> login(USUARIO, SENHA, "10.0.0.1")
+                                .flatMap(jwt -> resposta.sendString(Mono.just(jwt.getToken())).then())
+                                .onErrorResume(ResponseStatusException.class, e -> resposta.status(e.getStatusCode().value()).send().then()))
+                        .get("/ping", (requisicao, resposta) -> resposta.sendString(Mono.just("pong"))))
+                .bindNow();
+        ConnectionProvider conexoes = ConnectionProvider.create("storm", 200);
+        HttpClient cliente = HttpClient.create(conexoes).baseUrl("http://127.0.0.1:" + servidor.port());
+        try {
+            Mono<Map<Integer, Long>> tempestade = Flux.range(0, 100)
+                    .flatMap(i -> cliente.post().uri("/login").responseSingle((resposta, corpo) -> Mono.just(resposta.status().code())), 100)
+                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+            Mono<List<String>> durante = Mono.delay(Duration.ofMillis(50)).then(pings(cliente, 40));
+            var resultado = Mono.zip(tempestade, durante).block(Duration.ofSeconds(60));
+
+            assertThat(resultado.getT1()).containsKeys(200, 503);
+            assertThat(resultado.getT2()).hasSize(40).containsOnly("pong");
+        } finally {
+            servidor.disposeNow();
+            conexoes.disposeLater().block();
+            loop.disposeLater().block();
+        }
+    }
+
+    private AuthService authService() {
+        return new AuthService(userRepository, new JwtService("mySecretKey123456789012345678901234567890", 60_000, 100),
+                passwordEncoder, properties);
+    }
+
+    private Mono<JwtResponse> login(String usuario, String senha, String origem) {
+        LoginRequest request = new LoginRequest();
+        request.setUsername(usuario);
+        request.setPassword(senha);
+        return service.authenticate(request, origem);
+    }
+
+    // Status da recusa; nulo quando o login falhou só por credenciais inválidas
+    private static HttpStatus status(Mono<JwtResponse> login) {
+        try {
+            login.block();
+            return HttpStatus.OK;
+        } catch (ResponseStatusException e) {
+            return HttpStatus.valueOf(e.getStatusCode().value());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Respostas de pings sequenciais
+    private static Mono<List<String>> pings(HttpClient cliente, int quantidade) {
+        return Flux.range(0, quantidade)
+                .concatMap(i -> cliente.get().uri("/ping").responseContent().aggregate().asString()
+                        .delayElement(Duration.ofMillis(10)))
+                .collectList();
+    }
+}
@@ -0,0 +1,212 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.Produto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Leitura do corpo entregue em pedaços, como o HttpClient faz, sobre as páginas gravadas em
+ * src/test/resources/paginas: sem compressão, gzip e deflate, com pedaços que partem cabeçalhos,
+ * trailers e caracteres multibyte, além dos cortes pelo limite de bytes e pelo fim do estado embutido.
+ */
+class CorpoPaginaSubscriberTest {
+
+    private static final int PEDACO = 8 * 1024;
+    private static final int[] PEDACOS_IRREGULARES = {1, 2, 3, 5, 7, 11, 13, 1021, 4093};
+
+    private final ProdutoExtractor extractor = new ProdutoExtractor(new ObjectMapper());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CorpoPaginaSubscriber.Contadores contadores = new CorpoPaginaSubscriber.Contadores(
+            meterRegistry.counter("recebidos"), meterRegistry.counter("decodificados"),
+            meterRegistry.counter("limite"), meterRegistry.counter("estado"));
+
+    @Test
+    void estadoSemAnunciosLeAPaginaInteiraParaOScannerDeTags() throws IOException {
+        String html = pagina("busca-tags.html").replace("</head>",
+                "<script id=\"__NEXT_DATA__\" type=\"application/json\">{\"props\":{\"pageProps\":{\"ads\":[]}}}</script>"
+                        + enchimento(64 * 1024) + "</head>");
+
+        String lido = ler(html.getBytes(StandardCharsets.UTF_8), extractor::estadoTemAnuncios);
+
+        assertThat(lido).isEqualTo(html);
+        assertThat(extractor.extrair(lido, "tracer")).hasSize(4);
+        assertThat(contadores.encerradosNoEstado().count()).isZero();
+    }
+
+    @Test
+    void estadoComAnunciosEncerraALeituraEAlocaMenos() throws IOException {
+        String html = pagina("busca-estado.html").replace("</body>", enchimento(2 * 1024 * 1024) + "</body>");
+        byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+        List<Produto> esperado = extractor.extrair(html, "tracer");
+
+        String parcial = ler(bytes, extractor::estadoTemAnuncios);
+        assertThat(parcial.length()).isLessThan(html.length() / 10);
+        assertThat(extractor.extrair(parcial, "tracer")).isEqualTo(esperado).hasSize(4);
+        assertThat(contadores.encerradosNoEstado().count()).isEqualTo(1);
+
+        // Aquecidos os dois caminhos acima e abaixo, mede a alocação de uma leitura de cada
+        ler(bytes, null);
+        long comParada = alocado(() -> ler(bytes, extractor::estadoTemAnuncios));
+        long inteira = alocado(() -> ler(bytes, null));
+        assertThat(comParada).isLessThan(inteira / 10);
+    }
+
+    @Test
+    void gzipPartidoEmPedacosIrregularesDaOMesmoTexto() throws IOException {
+        String html = pagina("busca-estado.html");
+        byte[] dados = html.getBytes(StandardCharsets.UTF_8);
+
+        // Pedaços de 1, 2, 3... bytes partem o cabeçalho gzip, o nome do arquivo, o fluxo deflate,
+        // o trailer e os caracteres multibyte do UTF-8
+        assertThat(corpo("gzip", gzip(dados, "busca.html"), Long.MAX_VALUE, PEDACOS_IRREGULARES).join()).isEqualTo(html);
+        assertThat(corpo("x-gzip", gzip(dados, null), Long.MAX_VALUE, PEDACOS_IRREGULARES).join()).isEqualTo(html);
+    }
+
+    @Test
+    void deflateComESemCabecalhoZlibDaOMesmoTexto() throws IOException {
+        String html = pagina("busca-tags.html");
+        byte[] dados = html.getBytes(StandardCharsets.UTF_8);
+
+        assertThat(corpo("deflate", deflate(dados, false), Long.MAX_VALUE, PEDACOS_IRREGULARES).join()).isEqualTo(html);
+        assertThat(corpo("deflate", deflate(dados, true), Long.MAX_VALUE, PEDACOS_IRREGULARES).join()).isEqualTo(html);
+    }
+
+    @Test
+    void gzipComCrcErradoOuTruncadoFalha() throws IOException {
+        byte[] dados = pagina("busca-tags.html").getBytes(StandardCharsets.UTF_8);
+        byte[] comCrcErrado = gzip(dados, null);
+        comCrcErrado[comCrcErrado.length - 8] ^= 1;
+        byte[] gzip = gzip(dados, null);
+        byte[] truncado = Arrays.copyOf(gzip, gzip.length / 2);
+
+        assertThat(corpo("gzip", comCrcErrado, Long.MAX_VALUE, PEDACOS_IRREGULARES))
+                .failsWithin(Duration.ZERO).withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IOException.class).withMessageContaining("CRC");
+        assertThat(corpo("gzip", truncado, Long.MAX_VALUE, PEDACOS_IRREGULARES))
+                .failsWithin(Duration.ZERO).withThrowableOfType(ExecutionException.class)
+                .withMessageContaining("truncado");
+        assertThat(corpo("br", dados, Long.MAX_VALUE, PEDACOS_IRREGULARES))
+                .failsWithin(Duration.ZERO).withThrowableOfType(ExecutionException.class)
+                .withMessageContaining("não suportado");
+    }
+
+    @Test
+    void corpoAcimaDoLimiteECortadoSemLerORestante() throws IOException {
+        String html = pagina("busca-tags.html") + enchimento(256 * 1024);
+        byte[] dados = html.getBytes(StandardCharsets.UTF_8);
+        int limite = 32 * 1024;
+
+        assertThat(corpo("", dados, limite, PEDACO).join())
+                .isEqualTo(new String(dados, 0, limite, StandardCharsets.UTF_8));
+        assertThat(corpo("gzip", gzip(dados, null), limite, PEDACOS_IRREGULARES).join())
+                .isEqualTo(new String(dados, 0, limite, StandardCharsets.UTF_8));
+        assertThat(contadores.cortadosNoLimite().count()).isEqualTo(2);
+        // Os dois corpos passam muito do limite depois de descomprimidos, mas só o limite foi decodificado
+        assertThat(contadores.decodificados().count()).isEqualTo(2.0 * limite);
+    }
+
+    private String ler(byte[] bytes, Predicate<String> estadoBasta) {
+        return corpo("", bytes, 10L * 1024 * 1024, estadoBasta, PEDACO).join();
+    }
+
+    private CompletableFuture<String> corpo(String contentEncoding, byte[] bytes, long limite, int... tamanhos) {
+        return corpo(contentEncoding, bytes, limite, null, tamanhos);
+    }
+
+    // Entrega o corpo em pedaços com os tamanhos dados, em ciclo, até o fim ou até o subscriber cancelar a resposta
+    private CompletableFuture<String> corpo(String contentEncoding, byte[] bytes, long limite,
+                                            Predicate<String> estadoBasta, int... tamanhos) {
+        CorpoPaginaSubscriber subscriber = new CorpoPaginaSubscriber(contentEncoding, StandardCharsets.UTF_8,
+                limite, estadoBasta, contadores);
+        boolean[] cancelado = {false};
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+                cancelado[0] = true;
+            }
+        });
+        int inicio = 0;
+        for (int i = 0; inicio < bytes.length && !cancelado[0]; i++) {
+            int tamanho = Math.min(tamanhos[i % tamanhos.length], bytes.length - inicio);
+            subscriber.onNext(List.of(ByteBuffer.wrap(bytes, inicio, tamanho)));
+            inicio += tamanho;
+        }
+        if (!cancelado[0]) {
+            subscriber.onComplete();
+        }
+        return subscriber.getBody().toCompletableFuture();
+    }
+
+    // Gzip montado à mão para incluir o campo FNAME, que o GZIPOutputStream não escreve
+    private static byte[] gzip(byte[] dados, String nome) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        saida.writeBytes(new byte[]{0x1f, (byte) 0x8b, 8, (byte) (nome == null ? 0 : 8), 0, 0, 0, 0, 0, (byte) 0xff});
+        if (nome != null) {
+            saida.writeBytes(nome.getBytes(StandardCharsets.ISO_8859_1));
+            saida.write(0);
+        }
+        saida.writeBytes(deflate(dados, true));
+        CRC32 crc = new CRC32();
+        crc.update(dados);
+        saida.writeBytes(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt((int) crc.getValue()).putInt(dados.length).array());
+        return saida.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] dados, boolean semCabecalho) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, semCabecalho);
+        deflater.setInput(dados);
+        deflater.finish();
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            saida.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return saida.toByteArray();
+    }
+
+    // Bytes alocados pela thread atual durante a leitura
+    private static long alocado(Runnable leitura) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long antes = threads.getCurrentThreadAllocatedBytes();
+        leitura.run();
+        return threads.getCurrentThreadAllocatedBytes() - antes;
+    }
+
+    // Marcação sem anúncios, como os scripts e o rodapé que seguem o estado numa página real
+    private static String enchimento(int tamanho) {
+        String bloco = "<div class=\"rodape\"><a href=\"/ajuda\">Central de ajuda</a></div>\n";
+        return bloco.repeat(tamanho / bloco.length() + 1);
+    }
+
+    private static String pagina(String nome) throws IOException {
+        try (InputStream entrada = CorpoPaginaSubscriberTest.class.getResourceAsStream("/paginas/" + nome)) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
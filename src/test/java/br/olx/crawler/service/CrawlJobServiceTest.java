@@ -0,0 +1,80 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerJobsProperties;
+import br.olx.crawler.entity.CrawlJob;
+import br.olx.crawler.repository.CrawlJobRepository;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.repository.support.ReactiveMongoRepositoryFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Encerramento de jobs interrompidos com várias instâncias compartilhando {@code crawl_jobs}.
+ */
+class CrawlJobServiceTest {
+
+    private MongoServer servidor;
+    private MongoClient client;
+    private ReactiveMongoTemplate mongoTemplate;
+    private CrawlJobService service;
+
+    @BeforeEach
+    void setUp() {
+        servidor = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(servidor.bindAndGetConnectionString());
+        mongoTemplate = new ReactiveMongoTemplate(client, "crawler");
+        CrawlJobRepository crawlJobRepository = new ReactiveMongoRepositoryFactory(mongoTemplate).getRepository(CrawlJobRepository.class);
+        ClusterLeaseService clusterLeaseService = mock(ClusterLeaseService.class);
+        when(clusterLeaseService.getNodeId()).thenReturn("no-novo");
+        service = new CrawlJobService(crawlJobRepository, mock(OlxCrawlerService.class), mock(CrawlerScheduledService.class),
+                mongoTemplate, clusterLeaseService, new CrawlerJobsProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        servidor.shutdownNow();
+    }
+
+    @Test
+    void reinicioDeUmaInstanciaNaoDerrubaJobsVivosDasOutras() {
+        Instant agora = Instant.now();
+        CrawlJob vivo = inserir("no-a", CrawlJob.Status.EXECUTANDO, agora.minusSeconds(10));
+        CrawlJob abandonado = inserir("no-b", CrawlJob.Status.EXECUTANDO, agora.minus(Duration.ofMinutes(5)));
+        CrawlJob semHeartbeat = inserir(null, CrawlJob.Status.PENDENTE, null);
+
+        service.encerrarJobsInterrompidos();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> status(abandonado) == CrawlJob.Status.FALHOU
+                && status(semHeartbeat) == CrawlJob.Status.FALHOU);
+        assertThat(status(vivo)).isEqualTo(CrawlJob.Status.EXECUTANDO);
+        assertThat(mongoTemplate.findById(abandonado.getId(), CrawlJob.class).block().getFinalizadoEm()).isNotNull();
+    }
+
+    private CrawlJob inserir(String nodeId, CrawlJob.Status status, Instant heartbeatEm) {
+        return mongoTemplate.insert(CrawlJob.builder()
+                .tipo(CrawlJob.Tipo.EMAIL)
+                .status(status)
+                .nodeId(nodeId)
+                .criadoEm(Instant.now())
+                .heartbeatEm(heartbeatEm)
+                .build()).block();
+    }
+
+    private CrawlJob.Status status(CrawlJob job) {
+        return mongoTemplate.findById(job.getId(), CrawlJob.class).block().getStatus();
+    }
+}
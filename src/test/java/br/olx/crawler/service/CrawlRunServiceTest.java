@@ -0,0 +1,196 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerRunsProperties;
+import br.olx.crawler.dto.Produto;
+import br.olx.crawler.dto.ResultadoCrawlLink;
+import br.olx.crawler.entity.CrawlCheckpoint;
+import br.olx.crawler.entity.CrawlRun;
+import br.olx.crawler.entity.Link;
+import br.olx.crawler.entity.ProdutoEncontrado;
+import br.olx.crawler.repository.LinkRepository;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.ReactiveMongoRepositoryFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Execuções do crawler em {@code crawl_runs} sobre um MongoDB em memória (mongo-java-server). O motor
+ * do crawler é simulado: para cada link, lê as páginas já concluídas pelo checkpoint do Context e
+ * registra a página seguinte, como faz a paginação do {@link OlxCrawlerService}.
+ */
+class CrawlRunServiceTest {
+
+    private MongoServer servidor;
+    private MongoClient client;
+    private ReactiveMongoTemplate mongoTemplate;
+    private LinkRepository linkRepository;
+    private final CrawlerEngineService crawlerEngineService = mock(CrawlerEngineService.class);
+    // Links entregues ao motor em cada chamada e páginas que o checkpoint tinha para cada URI
+    private final List<List<String>> crawls = new CopyOnWriteArrayList<>();
+    private final Map<String, Set<Integer>> paginasRetomadas = new ConcurrentHashMap<>();
+    // Segura o motor até ser liberado, para manter uma execução em andamento
+    private Mono<Void> portao = Mono.empty();
+    private CrawlRunService service;
+
+    @BeforeEach
+    void setUp() {
+        servidor = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(servidor.bindAndGetConnectionString());
+        mongoTemplate = new ReactiveMongoTemplate(client, "crawler");
+        linkRepository = new ReactiveMongoRepositoryFactory(mongoTemplate).getRepository(LinkRepository.class);
+        ClusterLeaseService clusterLeaseService = mock(ClusterLeaseService.class);
+        when(clusterLeaseService.getNodeId()).thenReturn("no-novo");
+        when(crawlerEngineService.crawl(anyList())).thenAnswer(invocacao -> crawl(invocacao.getArgument(0)));
+        service = new CrawlRunService(mongoTemplate, linkRepository, crawlerEngineService, clusterLeaseService,
+                new CrawlerRunsProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        servidor.shutdownNow();
+    }
+
+    @Test
+    void execucaoParadaRetomaDaUltimaPaginaDoCheckpoint() {
+        Link concluido = linkRepository.save(link("https://www.olx.com.br/motos/tracer")).block();
+        Link interrompido = linkRepository.save(link("https://www.olx.com.br/motos/cb500x")).block();
+        CrawlRun parada = mongoTemplate.insert(CrawlRun.builder()
+                .origem(CrawlRun.Origem.CRON)
+                .status(CrawlRun.Status.EXECUTANDO)
+                .nodeId("no-que-caiu")
+                .linkIds(List.of(concluido.getId(), interrompido.getId()))
+                .linksConcluidos(new ArrayList<>(List.of(concluido.getId())))
+                .paginas(3)
+                .iniciadaEm(Instant.now().minus(Duration.ofMinutes(10)))
+                .heartbeatEm(Instant.now().minus(Duration.ofMinutes(5)))
+                .build()).block();
+        checkpoint(parada, interrompido, 1);
+        checkpoint(parada, interrompido, 2);
+
+        List<Link> resumo = service.retomarInterrompida().block(Duration.ofSeconds(10));
+
+        // Só o link pendente volta ao motor, a partir das páginas já gravadas; o resumo cobre a execução inteira
+        assertThat(crawls).containsExactly(List.of(interrompido.getUri()));
+        assertThat(paginasRetomadas).containsEntry(interrompido.getUri(), Set.of(1, 2));
+        assertThat(resumo).extracting(Link::getId).containsExactlyInAnyOrder(concluido.getId(), interrompido.getId());
+
+        CrawlRun retomada = mongoTemplate.findById(parada.getId(), CrawlRun.class).block();
+        assertThat(retomada.getStatus()).isEqualTo(CrawlRun.Status.CONCLUIDA);
+        assertThat(retomada.getNodeId()).isEqualTo("no-novo");
+        assertThat(retomada.getRetomadas()).isEqualTo(1);
+        assertThat(retomada.getLinksConcluidos()).containsExactlyInAnyOrder(concluido.getId(), interrompido.getId());
+        assertThat(retomada.getPaginas()).isEqualTo(4);
+        assertThat(mongoTemplate.count(new Query(), CrawlCheckpoint.class).block())
+                .isEqualTo(3);
+
+        // Já concluída, a execução não é retomada de novo
+        StepVerifier.create(service.retomarInterrompida()).verifyComplete();
+    }
+
+    @Test
+    void execucaoComHeartbeatRecenteNaoERetomada() {
+        Link link = linkRepository.save(link("https://www.olx.com.br/motos/tracer")).block();
+        mongoTemplate.insert(CrawlRun.builder()
+                .origem(CrawlRun.Origem.CRON)
+                .status(CrawlRun.Status.EXECUTANDO)
+                .nodeId("no-vivo")
+                .linkIds(List.of(link.getId()))
+                .linksConcluidos(new ArrayList<>())
+                .iniciadaEm(Instant.now())
+                .heartbeatEm(Instant.now())
+                .build()).block();
+
+        StepVerifier.create(service.retomarInterrompida()).verifyComplete();
+        assertThat(crawls).isEmpty();
+    }
+
+    @Test
+    void segundoDisparoDuranteUmaExecucaoERecusadoCom409() {
+        Link link = linkRepository.save(link("https://www.olx.com.br/motos/tracer")).block();
+        Sinks.Empty<Void> liberar = Sinks.empty();
+        portao = liberar.asMono();
+
+        CompletableFuture<List<ResultadoCrawlLink>> primeira = service.executar(CrawlRun.Origem.CRON, Flux.just(link)).toFuture();
+
+        StepVerifier.create(service.executar(CrawlRun.Origem.MANUAL, Flux.just(link)))
+                .expectErrorSatisfies(erro -> assertThat(erro).isInstanceOfSatisfying(ResponseStatusException.class,
+                        recusa -> assertThat(recusa.getStatusCode()).isEqualTo(HttpStatus.CONFLICT)))
+                .verify(Duration.ofSeconds(5));
+        StepVerifier.create(service.retomarInterrompida()).verifyComplete();
+
+        liberar.tryEmitEmpty();
+        assertThat(primeira).succeedsWithin(Duration.ofSeconds(10)).asList().hasSize(1);
+
+        // Terminada a primeira (a reserva é liberada logo depois do resultado), um novo disparo é aceito
+        AtomicReference<?> execucaoAtiva = (AtomicReference<?>) ReflectionTestUtils.getField(service, "execucaoAtiva");
+        await().atMost(Duration.ofSeconds(5)).until(() -> execucaoAtiva.get() == null);
+        portao = Mono.empty();
+        assertThat(service.executar(CrawlRun.Origem.MANUAL, Flux.just(link)).block(Duration.ofSeconds(10))).hasSize(1);
+        assertThat(mongoTemplate.findAll(CrawlRun.class).collectList().block())
+                .extracting(CrawlRun::getStatus).containsOnly(CrawlRun.Status.CONCLUIDA).hasSize(2);
+    }
+
+    private Flux<ResultadoCrawlLink> crawl(List<Link> links) {
+        crawls.add(links.stream().map(Link::getUri).toList());
+        return portao.thenMany(Flux.deferContextual(contexto -> {
+            CheckpointPaginas checkpoint = contexto.get(CheckpointPaginas.class);
+            return Flux.fromIterable(links).concatMap(link -> checkpoint.paginasConcluidas(link.getUri())
+                    .flatMap(paginas -> {
+                        paginasRetomadas.put(link.getUri(), Set.copyOf(paginas.keySet()));
+                        int proxima = paginas.isEmpty() ? 1 : paginas.lastKey() + 1;
+                        List<Produto> produtos = List.of(produto(link, proxima));
+                        return checkpoint.registrar(link.getUri(), proxima, produtos)
+                                .thenReturn(new ResultadoCrawlLink(link, produtos, true, 0, List.of()));
+                    }));
+        }));
+    }
+
+    private void checkpoint(CrawlRun execucao, Link link, int pagina) {
+        mongoTemplate.insert(CrawlCheckpoint.builder()
+                .runId(execucao.getId())
+                .uri(link.getUri())
+                .pagina(pagina)
+                .produtos(List.of(ProdutoEncontrado.de(produto(link, pagina))))
+                .registradoEm(Instant.now())
+                .build()).block();
+    }
+
+    private static Link link(String uri) {
+        return Link.builder().uri(uri).term("").enabled(true).build();
+    }
+
+    private static Produto produto(Link link, int pagina) {
+        return new Produto("Anúncio da página " + pagina, "R$ 1.000", link.getUri() + "/anuncio-" + pagina, "");
+    }
+}
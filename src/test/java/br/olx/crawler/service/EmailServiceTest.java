@@ -0,0 +1,134 @@
+package br.olx.crawler.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Envio contra um servidor SMTP mínimo no próprio processo, que conta conexões e mensagens.
+ */
+class EmailServiceTest {
+
+    private ServerSocket servidor;
+    private final AtomicInteger conexoes = new AtomicInteger();
+    private final AtomicInteger abertas = new AtomicInteger();
+    private final AtomicInteger mensagens = new AtomicInteger();
+    private EmailService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        servidor = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread aceitador = new Thread(() -> {
+            while (!servidor.isClosed()) {
+                try {
+                    Socket socket = servidor.accept();
+                    conexoes.incrementAndGet();
+                    abertas.incrementAndGet();
+                    new Thread(() -> atender(socket)).start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        aceitador.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (service != null) {
+            service.encerrar();
+        }
+        servidor.close();
+    }
+
+    @Test
+    void mensagensEmSequenciaUsamUmaConexao() {
+        service = emailService(Duration.ofMinutes(2));
+        List<String> corpos = IntStream.range(0, 200).mapToObj(i -> "<p>Resumo " + i + "</p>").toList();
+
+        service.send(corpos).block(Duration.ofSeconds(30));
+
+        service.sendSummaryEmail("<p>Mais um</p>").block(Duration.ofSeconds(10));
+        assertThat(mensagens).hasValue(201);
+        assertThat(conexoes).hasValue(1);
+    }
+
+    @Test
+    void conexaoOciosaEFechadaSemNovoEnvio() {
+        service = emailService(Duration.ofMillis(200));
+
+        service.sendSummaryEmail("<p>Resumo</p>").block(Duration.ofSeconds(10));
+        assertThat(abertas).hasValue(1);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> abertas.get() == 0);
+
+        // O próximo envio abre outra conexão
+        service.sendSummaryEmail("<p>Resumo</p>").block(Duration.ofSeconds(10));
+        assertThat(conexoes).hasValue(2);
+    }
+
+    private EmailService emailService(Duration idleTimeout) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(servidor.getLocalPort());
+        EmailService emailService = new EmailService(mailSender, idleTimeout, 100);
+        ReflectionTestUtils.setField(emailService, "to", "destino@example.com");
+        ReflectionTestUtils.setField(emailService, "from", "crawler@example.com");
+        return emailService;
+    }
+
+    // Só o necessário do protocolo para o Jakarta Mail: saudação, comandos com 250 e DATA até a linha "."
+    private void atender(Socket socket) {
+        try (socket;
+             BufferedReader entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             PrintWriter saida = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            responder(saida, "220 localhost SMTP");
+            String linha;
+            while ((linha = entrada.readLine()) != null) {
+                String comando = linha.length() < 4 ? linha : linha.substring(0, 4).toUpperCase();
+                switch (comando) {
+                    case "DATA" -> {
+                        responder(saida, "354 fim com <CRLF>.<CRLF>");
+                        while ((linha = entrada.readLine()) != null && !linha.equals(".")) {
+                            // corpo da mensagem
+                        }
+                        mensagens.incrementAndGet();
+                        responder(saida, "250 OK");
+                    }
+                    case "QUIT" -> {
+                        responder(saida, "221 tchau");
+                        return;
+                    }
+                    default -> responder(saida, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // conexão derrubada pelo cliente
+        } finally {
+            abertas.decrementAndGet();
+        }
+    }
+
+    private static void responder(PrintWriter saida, String resposta) {
+        saida.print(resposta + "\r\n");
+        saida.flush();
+    }
+}
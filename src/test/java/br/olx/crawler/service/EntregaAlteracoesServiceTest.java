@@ -0,0 +1,98 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.AlteracaoAnuncio;
+import br.olx.crawler.dto.Produto;
+import br.olx.crawler.repository.ListingRepository;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.repository.support.ReactiveMongoRepositoryFactory;
+
+import java.util.List;
+
+import static br.olx.crawler.service.EntregaAlteracoesService.Canal.EMAIL;
+import static br.olx.crawler.service.EntregaAlteracoesService.Canal.WHATSAPP;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cursores de entrega por canal sobre um MongoDB em memória (mongo-java-server).
+ */
+class EntregaAlteracoesServiceTest {
+
+    private static final String LINK = "link-a";
+
+    private MongoServer servidor;
+    private MongoClient client;
+    private ReactiveMongoTemplate mongoTemplate;
+    private ListingService listingService;
+    private EntregaAlteracoesService service;
+
+    @BeforeEach
+    void setUp() {
+        servidor = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(servidor.bindAndGetConnectionString());
+        mongoTemplate = new ReactiveMongoTemplate(client, "crawler");
+        ListingRepository listingRepository = new ReactiveMongoRepositoryFactory(mongoTemplate).getRepository(ListingRepository.class);
+        listingService = new ListingService(mongoTemplate, 1000);
+        service = new EntregaAlteracoesService(listingRepository, mongoTemplate, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        servidor.shutdownNow();
+    }
+
+    @Test
+    void cadaCanalTemSeuProprioCursor() {
+        listingService.salvar(LINK, List.of(produto("R$ 45.000"))).block();
+
+        List<AlteracaoAnuncio> email = service.pendentes(LINK, EMAIL).block();
+        assertThat(email).extracting(AlteracaoAnuncio::getTipo).containsExactly(AlteracaoAnuncio.Tipo.NOVO);
+        service.confirmar(LINK, EMAIL, email).block();
+
+        assertThat(service.pendentes(LINK, EMAIL).block()).isEmpty();
+        assertThat(service.pendentes(LINK, WHATSAPP).block()).extracting(AlteracaoAnuncio::getTipo)
+                .containsExactly(AlteracaoAnuncio.Tipo.NOVO);
+    }
+
+    @Test
+    void alteracaoSemConfirmacaoContinuaPendente() {
+        listingService.salvar(LINK, List.of(produto("R$ 45.000"))).block();
+        service.confirmar(LINK, EMAIL, service.pendentes(LINK, EMAIL).block()).block();
+
+        listingService.salvar(LINK, List.of(produto("R$ 42.000"))).block();
+        // Envio do e-mail falhou: nada é confirmado e a queda de preço segue pendente na próxima execução
+        List<AlteracaoAnuncio> pendentes = service.pendentes(LINK, EMAIL).block();
+        assertThat(service.pendentes(LINK, EMAIL).block()).isEqualTo(pendentes);
+        assertThat(pendentes).singleElement().satisfies(alteracao -> {
+            assertThat(alteracao.getTipo()).isEqualTo(AlteracaoAnuncio.Tipo.PRECO_CAIU);
+            assertThat(alteracao.getPrecoAnterior()).isEqualTo("R$ 45.000");
+        });
+
+        service.confirmar(LINK, EMAIL, pendentes).block();
+        assertThat(service.pendentes(LINK, EMAIL).block()).isEmpty();
+    }
+
+    @Test
+    void removidoSoEPendenteParaQuemViuOAnuncio() {
+        Produto produto = produto("R$ 45.000");
+        listingService.salvar(LINK, List.of(produto)).block();
+        service.confirmar(LINK, EMAIL, service.pendentes(LINK, EMAIL).block()).block();
+
+        listingService.marcarRemovidos(LINK, List.of(produto.getAnuncioId())).block();
+
+        assertThat(service.pendentes(LINK, EMAIL).block()).extracting(AlteracaoAnuncio::getTipo)
+                .containsExactly(AlteracaoAnuncio.Tipo.REMOVIDO);
+        assertThat(service.pendentes(LINK, WHATSAPP).block()).isEmpty();
+    }
+
+    private static Produto produto(String preco) {
+        return new Produto("Tracer 900 GT", preco, "https://rs.olx.com.br/autos-e-pecas/motos/tracer-900-gt-1302456789", "");
+    }
+}
@@ -0,0 +1,59 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerIncrementalProperties;
+import br.olx.crawler.dto.Produto;
+import br.olx.crawler.dto.ProdutosColetados;
+import br.olx.crawler.dto.ResultadoCrawlLink;
+import br.olx.crawler.entity.Link;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IncrementalCrawlServiceTest {
+
+    private static final String URI = "https://www.olx.com.br/autos-e-pecas/motos/estado-rs";
+
+    private final OlxCrawlerService olxCrawlerService = mock(OlxCrawlerService.class);
+    private final IncrementalCrawlService service = new IncrementalCrawlService(olxCrawlerService,
+            mock(ReactiveMongoTemplate.class), new CrawlerIncrementalProperties());
+
+    @Test
+    void crawlerSemFalhasAteOFimDaPaginacaoEhCompleto() {
+        when(olxCrawlerService.crawlerPorUri(URI)).thenReturn(Mono.just(new ProdutosColetados(List.of(produto()), 0, true)));
+
+        assertThat(service.crawl(link()).block().isCompleto()).isTrue();
+    }
+
+    @Test
+    void paginaComFalhaTornaOCrawlerIncompleto() {
+        when(olxCrawlerService.crawlerPorUri(URI)).thenReturn(Mono.just(new ProdutosColetados(List.of(produto()), 1, true)));
+
+        ResultadoCrawlLink resultado = service.crawl(link()).block();
+
+        assertThat(resultado.isCompleto()).isFalse();
+        assertThat(resultado.getPaginasComFalha()).isEqualTo(1);
+    }
+
+    @Test
+    void limiteDePaginasSemFimDaPaginacaoEhIncompleto() {
+        when(olxCrawlerService.crawlerPorUri(URI)).thenReturn(Mono.just(new ProdutosColetados(List.of(produto()), 0, false)));
+
+        assertThat(service.crawl(link()).block().isCompleto()).isFalse();
+    }
+
+    private static Link link() {
+        Link link = new Link();
+        link.setUri(URI);
+        return link;
+    }
+
+    private static Produto produto() {
+        return new Produto("Tracer 900 GT", "R$ 45.000", "https://rs.olx.com.br/autos-e-pecas/motos/tracer-900-gt-1302456789", "");
+    }
+}
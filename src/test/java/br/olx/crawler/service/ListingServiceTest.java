@@ -0,0 +1,93 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.Produto;
+import br.olx.crawler.entity.Listing;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Grava anúncios num MongoDB em memória (mongo-java-server), com os índices declarados na entidade.
+ */
+class ListingServiceTest {
+
+    private MongoServer servidor;
+    private MongoClient client;
+    private ReactiveMongoTemplate mongoTemplate;
+    private ListingService service;
+
+    @BeforeEach
+    void setUp() {
+        servidor = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(servidor.bindAndGetConnectionString());
+        mongoTemplate = new ReactiveMongoTemplate(client, "crawler");
+        IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(Listing.class)
+                .forEach(indice -> mongoTemplate.indexOps(Listing.class).ensureIndex(indice).block());
+        service = new ListingService(mongoTemplate, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        servidor.shutdownNow();
+    }
+
+    @Test
+    void mesmoAnuncioEmDoisLinksGeraUmDocumentoPorLink() {
+        Produto produto = produto(1, "R$ 45.000");
+
+        StepVerifier.create(service.salvar("link-a", List.of(produto))
+                        .then(service.salvar("link-b", List.of(produto)))
+                        .then(service.marcarRemovidos("link-a", List.of(produto.getAnuncioId()))))
+                .verifyComplete();
+
+        List<Listing> listings = mongoTemplate.findAll(Listing.class).collectList().block();
+        assertThat(listings).extracting(Listing::getLinkId).containsExactlyInAnyOrder("link-a", "link-b");
+        assertThat(listings).extracting(Listing::getAnuncioId).containsOnly(produto.getAnuncioId());
+        assertThat(listings).filteredOn(listing -> listing.getRemovidoEm() != null)
+                .extracting(Listing::getLinkId).containsExactly("link-a");
+    }
+
+    @Test
+    void indiceUnicoRecusaAnuncioRepetidoNoMesmoLink() {
+        Listing listing = Listing.builder().linkId("link-a").anuncioId("1000000001").build();
+        Listing repetido = Listing.builder().linkId("link-a").anuncioId("1000000001").build();
+
+        StepVerifier.create(mongoTemplate.insert(listing).then(mongoTemplate.insert(repetido)))
+                .expectError(DuplicateKeyException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void gravaDezMilAnunciosEmLotes() {
+        List<Produto> produtos = IntStream.range(0, 10_000).mapToObj(i -> produto(i, "R$ " + (1000 + i))).toList();
+
+        StepVerifier.create(service.salvar("link-a", produtos)).expectNext(10_000L).verifyComplete();
+
+        List<Produto> comPrecoNovo = IntStream.range(0, 10_000).mapToObj(i -> produto(i, "R$ " + (900 + i))).toList();
+        StepVerifier.create(service.salvar("link-a", comPrecoNovo)).expectNext(10_000L).verifyComplete();
+        StepVerifier.create(mongoTemplate.count(new Query(), Listing.class)).expectNext(10_000L).verifyComplete();
+    }
+
+    private static Produto produto(int indice, String preco) {
+        long id = 1_300_000_000L + indice;
+        return new Produto("Tracer 900 GT " + indice, preco,
+                "https://rs.olx.com.br/autos-e-pecas/motos/tracer-900-gt-" + id, "");
+    }
+}
@@ -0,0 +1,190 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerHttpProperties;
+import br.olx.crawler.config.CrawlerPolitenessProperties;
+import br.olx.crawler.dto.Produto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Paginação completa contra um servidor HTTP local com o BlockHound instalado: qualquer chamada
+ * bloqueante nas threads do Reactor (espera de politeness, extração no scheduler paralelo) falha o teste.
+ */
+class OlxCrawlerServiceTest {
+
+    private static final byte[] PAGINA_VAZIA =
+            "<html><body><main><p>Nenhum anúncio encontrado</p></main></body></html>".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer servidor;
+    private final AtomicInteger requisicoes = new AtomicInteger();
+    // Página respondida com 403 e última página com anúncios; as seguintes vêm vazias
+    private volatile int paginaBloqueada = -1;
+    private volatile int ultimaPagina = Integer.MAX_VALUE;
+    private OlxCrawlerService service;
+
+    @BeforeAll
+    static void instalarBlockHound() {
+        // install(...) também carrega a integração do Reactor, que marca as threads dos schedulers como não bloqueantes;
+        // a saída do log no console é a única escrita síncrona aceita
+        BlockHound.install(builder -> builder.allowBlockingCallsInside("ch.qos.logback.classic.Logger", "callAppenders"));
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        byte[] pagina = pagina("busca-estado.html");
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/motos", troca -> {
+            requisicoes.incrementAndGet();
+            String consulta = troca.getRequestURI().getQuery();
+            int numero = consulta == null ? 1 : Integer.parseInt(consulta.substring(consulta.indexOf("o=") + 2));
+            byte[] corpoPagina = numero > ultimaPagina ? PAGINA_VAZIA : pagina;
+            troca.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            troca.sendResponseHeaders(numero == paginaBloqueada ? 403 : 200, corpoPagina.length);
+            try (OutputStream corpo = troca.getResponseBody()) {
+                corpo.write(corpoPagina);
+            }
+        });
+        servidor.start();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CrawlerPolitenessProperties politeness = new CrawlerPolitenessProperties();
+        politeness.setInitialRate(50);
+        politeness.setMaxRate(50);
+        politeness.setJitter(0);
+        politeness.setRetryBackoff(Duration.ofMillis(10));
+
+        ProdutoExtractor extractor = new ProdutoExtractor(new ObjectMapper());
+        service = new OlxCrawlerService(
+                new CrawlerHttpClient(HttpClient.newHttpClient(), new CrawlerHttpProperties(), meterRegistry, extractor),
+                new PageCacheService(extractor, meterRegistry, 100),
+                new SearchResultCacheService(meterRegistry, Duration.ofMinutes(1), 100),
+                new PolitenessSchedulerService(politeness, meterRegistry),
+                politeness);
+        ReflectionTestUtils.setField(service, "paginasAFrente", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        servidor.stop(0);
+    }
+
+    @Test
+    void blockHoundDetectaBloqueioNoSchedulerParalelo() {
+        StepVerifier.create(Mono.fromCallable(() -> {
+                    Thread.sleep(1);
+                    return 1;
+                }).subscribeOn(Schedulers.parallel()))
+                .expectError(BlockingOperationError.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void paginacaoNaoBloqueiaThreadsDoReactor() {
+        StepVerifier.create(service.crawlerMultiplePages(baseUri(), 5))
+                .assertNext(coletados -> {
+                    assertThat(coletados.getProdutos()).extracting(Produto::getAnuncioId)
+                            .containsExactly("1302456789", "1302998877", "1303112233", "1303223344", "1303334455");
+                    assertThat(coletados.getPaginasComFalha()).isZero();
+                    assertThat(coletados.isFimDaPaginacao()).isFalse();
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(30));
+
+        assertThat(requisicoes).hasValue(5);
+    }
+
+    @Test
+    void paginaVaziaEncerraAPaginacao() {
+        ultimaPagina = 2;
+
+        StepVerifier.create(service.crawlerMultiplePages(baseUri(), 7))
+                .assertNext(coletados -> {
+                    assertThat(coletados.getPaginasComFalha()).isZero();
+                    assertThat(coletados.isFimDaPaginacao()).isTrue();
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(30));
+
+        // A página 3 vazia encerra a busca; as demais nem chegam a ser pedidas além das já adiantadas
+        assertThat(requisicoes.get()).isBetween(3, 5);
+    }
+
+    @Test
+    void paginaBloqueadaContaComoFalhaENaoComoFim() {
+        paginaBloqueada = 2;
+        ultimaPagina = 3;
+
+        StepVerifier.create(service.crawlerMultiplePages(baseUri(), 7))
+                .assertNext(coletados -> {
+                    assertThat(coletados.getProdutos()).hasSize(5);
+                    assertThat(coletados.getPaginasComFalha()).isEqualTo(1);
+                    assertThat(coletados.isFimDaPaginacao()).isTrue();
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void paginaBloqueadaNaoViraCheckpoint() {
+        paginaBloqueada = 2;
+        ultimaPagina = 3;
+        Set<Integer> registradas = new ConcurrentSkipListSet<>();
+        CheckpointPaginas checkpoint = new CheckpointPaginas() {
+            @Override
+            public Mono<SortedMap<Integer, List<Produto>>> paginasConcluidas(String uri) {
+                return Mono.just(new TreeMap<>());
+            }
+
+            @Override
+            public Mono<Void> registrar(String uri, int pagina, List<Produto> produtos) {
+                return Mono.fromRunnable(() -> registradas.add(pagina));
+            }
+        };
+
+        StepVerifier.create(service.crawlerMultiplePages(baseUri(), 7)
+                        .contextWrite(contexto -> contexto.put(CheckpointPaginas.class, checkpoint)))
+                .assertNext(coletados -> assertThat(coletados.getPaginasComFalha()).isEqualTo(1))
+                .expectComplete()
+                .verify(Duration.ofSeconds(30));
+
+        // Numa retomada a página 2 é baixada de novo em vez de ser dada como concluída
+        assertThat(registradas).contains(1, 3, 4).doesNotContain(2);
+    }
+
+    private String baseUri() {
+        return "http://127.0.0.1:" + servidor.getAddress().getPort() + "/motos";
+    }
+
+    private static byte[] pagina(String nome) throws IOException {
+        try (InputStream entrada = OlxCrawlerServiceTest.class.getResourceAsStream("/paginas/" + nome)) {
+            return entrada.readAllBytes();
+        }
+    }
+}
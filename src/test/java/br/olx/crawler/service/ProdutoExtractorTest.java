@@ -0,0 +1,224 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.Produto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara o extrator com as expressões regulares que ele substituiu (copiadas abaixo como
+ * referência) sobre páginas de busca gravadas em src/test/resources/paginas.
+ */
+class ProdutoExtractorTest {
+
+    private final ProdutoExtractor extractor = new ProdutoExtractor(new ObjectMapper());
+
+    @Test
+    void scannerDeTagsReproduzAsExpressoesRegulares() throws IOException {
+        String html = pagina("busca-tags.html");
+
+        List<List<String>> esperado = campos(extrairComRegex(html, "tracer"));
+
+        assertThat(esperado).hasSize(4);
+        assertThat(campos(extractor.extrair(html, "tracer"))).isEqualTo(esperado);
+        assertThat(campos(extractor.extrair(html, ""))).isEqualTo(campos(extrairComRegex(html, "")));
+    }
+
+    @Test
+    void semPrecoDescartaAvisoDeLoginComoAsExpressoesRegulares() throws IOException {
+        String html = pagina("busca-sem-precos.html");
+
+        List<List<String>> esperado = campos(extrairComRegex(html, "tracer"));
+
+        assertThat(esperado).hasSize(2);
+        assertThat(campos(extractor.extrair(html, "tracer"))).isEqualTo(esperado);
+    }
+
+    @Test
+    void estadoDaPaginaDaOMesmoResultadoQueOHtml() throws IOException {
+        String html = pagina("busca-estado.html");
+
+        List<List<String>> esperado = campos(extrairComRegex(html, "tracer"));
+
+        assertThat(esperado).hasSize(4);
+        // Inclui o anúncio com campos repetidos ("title" como objeto, "friendlyUrl" como lista)
+        assertThat(campos(extractor.extrair(html, "tracer"))).isEqualTo(esperado);
+    }
+
+    @Test
+    void estadoSemAnunciosUsaOScannerDeTags() throws IOException {
+        String html = pagina("busca-tags.html").replace("</head>",
+                "<script id=\"__NEXT_DATA__\" type=\"application/json\">{\"props\":{\"pageProps\":{\"ads\":[]}}}</script></head>");
+
+        assertThat(campos(extractor.extrair(html, "tracer"))).isEqualTo(campos(extrairComRegex(html, "tracer")));
+    }
+
+    @Test
+    void estadoSemAnunciosHasheiaOsCardsDoHtml() throws IOException {
+        String html = pagina("busca-tags.html").replace("</head>",
+                "<script id=\"__NEXT_DATA__\" type=\"application/json\">{\"props\":{\"pageProps\":{\"ads\":[]}}}</script></head>");
+        long hash = extractor.hashDaRegiaoDeAnuncios(html);
+
+        assertThat(extractor.hashDaRegiaoDeAnuncios(html.replace("Honda CB 500X 2022", "Honda CB 500X 2023"))).isNotEqualTo(hash);
+        assertThat(extractor.hashDaRegiaoDeAnuncios(html.replace("{\"ads\":[]}", "{\"ads\":[],\"totalOfAds\":0}"))).isEqualTo(hash);
+    }
+
+    @Test
+    void campoRepetidoComObjetoNaoDessincronizaOParser() {
+        String html = "<script id=\"__NEXT_DATA__\" type=\"application/json\">{\"ads\":["
+                + "{\"subject\":\"Tracer A\",\"title\":{\"url\":\"/errado-1\",\"price\":\"R$ 1\"},\"url\":\"/tracer-a-11\",\"price\":\"R$ 10.000\"},"
+                + "{\"subject\":\"Tracer B\",\"url\":\"/tracer-b-22\",\"friendlyUrl\":[{\"subject\":\"X\"}],\"price\":\"R$ 20.000\"}"
+                + "]}</script>";
+
+        List<Produto> produtos = extractor.extrair(html, "tracer");
+
+        assertThat(campos(produtos)).containsExactly(
+                List.of("Tracer A", "R$ 10.000", "https://www.olx.com.br/tracer-a-11", ""),
+                List.of("Tracer B", "R$ 20.000", "https://www.olx.com.br/tracer-b-22", ""));
+    }
+
+    @Test
+    void hashIgnoraMudancasForaDaRegiaoDeAnuncios() throws IOException {
+        String html = pagina("busca-tags.html");
+        long hash = extractor.hashDaRegiaoDeAnuncios(html);
+
+        assertThat(extractor.hashDaRegiaoDeAnuncios(html.replace("10/06/2024 12:00:00", "10/06/2024 12:05:00"))).isEqualTo(hash);
+        assertThat(extractor.hashDaRegiaoDeAnuncios(html.replace("1718020800000", "1718021100000"))).isEqualTo(hash);
+        assertThat(extractor.hashDaRegiaoDeAnuncios(html.replace("2024-06-10T12:00:00Z", "2024-06-10T12:05:00Z"))).isEqualTo(hash);
+        assertThat(extractor.hashDaRegiaoDeAnuncios(html.replace("248 resultados", "249 resultados"))).isEqualTo(hash);
+
+        assertThat(extractor.hashDaRegiaoDeAnuncios(html.replace("R$ 51.200", "R$ 49.900"))).isNotEqualTo(hash);
+        assertThat(extractor.hashDaRegiaoDeAnuncios(html.replace("Honda CB 500X 2022", "Honda CB 500X 2023"))).isNotEqualTo(hash);
+        assertThat(extractor.hashDaRegiaoDeAnuncios(html.replace("tracer-900-gt-2024-1302456789", "tracer-900-gt-2024-1302456790"))).isNotEqualTo(hash);
+    }
+
+    @Test
+    void paginaGrandeDaOMesmoResultadoQueAsExpressoesRegulares() throws IOException {
+        String modelo = pagina("busca-tags.html");
+        int inicioCards = modelo.indexOf("<main");
+        int fimCards = modelo.indexOf("</main>");
+        StringBuilder grande = new StringBuilder(modelo.substring(0, inicioCards));
+        for (int i = 0; i < 300; i++) {
+            grande.append(modelo, inicioCards, fimCards);
+        }
+        String html = grande.append(modelo.substring(fimCards)).toString();
+
+        List<Produto> esperado = extrairComRegex(html, "tracer");
+
+        assertThat(esperado).hasSize(4 * 300);
+        assertThat(campos(extractor.extrair(html, "tracer"))).isEqualTo(campos(esperado));
+    }
+
+    private static List<List<String>> campos(List<Produto> produtos) {
+        return produtos.stream()
+                .map(p -> List.of(p.getTitulo(), p.getPreco(), p.getLink(), p.getImagem()))
+                .toList();
+    }
+
+    private static String pagina(String nome) throws IOException {
+        try (InputStream entrada = ProdutoExtractorTest.class.getResourceAsStream("/paginas/" + nome)) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Extração original do OlxCrawlerService, mantida aqui como referência de comportamento
+    private static List<Produto> extrairComRegex(String html, String term) {
+        List<Produto> produtos = new ArrayList<>();
+
+        Pattern produtoComPrecoPattern = Pattern.compile(
+                "<a[^>]*href=\"([^\"]*)\"[^>]*>.*?" +
+                        "<h2[^>]*>([^<]+)</h2>.*?" +
+                        "(?:R\\$\\s*([\\d.,]+)|([\\d.,]+)\\s*mil)",
+                Pattern.DOTALL | Pattern.CASE_INSENSITIVE
+        );
+
+        Pattern produtoSemPrecoPattern = Pattern.compile(
+                "<a[^>]*href=\"([^\"]*)\"[^>]*>.*?" +
+                        "<h2[^>]*>([^<]+)</h2>",
+                Pattern.DOTALL | Pattern.CASE_INSENSITIVE
+        );
+
+        Matcher matcherComPreco = produtoComPrecoPattern.matcher(html);
+        while (matcherComPreco.find()) {
+            String link = matcherComPreco.group(1);
+            String titulo = matcherComPreco.group(2);
+            String precoReais = matcherComPreco.group(3);
+            String precoMil = matcherComPreco.group(4);
+
+            if (link == null || link.startsWith("#") || link.isEmpty()) {
+                continue;
+            }
+
+            titulo = titulo.replaceAll("\\s+", " ").trim();
+
+            if (!titulo.toLowerCase().contains(term.toLowerCase())) {
+                continue;
+            }
+
+            String preco;
+            if (precoReais != null && !precoReais.trim().isEmpty()) {
+                preco = "R$ " + precoReais.trim();
+            } else if (precoMil != null && !precoMil.trim().isEmpty()) {
+                preco = precoMil.trim() + " mil";
+            } else {
+                preco = "Preço não informado";
+            }
+
+            if (link.startsWith("/")) {
+                link = "https://www.olx.com.br" + link;
+            }
+
+            String imagem = extrairImagemProxima(html, matcherComPreco.start());
+            produtos.add(new Produto(titulo, preco, link, imagem));
+        }
+
+        if (produtos.isEmpty()) {
+            Matcher matcherSemPreco = produtoSemPrecoPattern.matcher(html);
+            while (matcherSemPreco.find()) {
+                String link = matcherSemPreco.group(1);
+                String titulo = matcherSemPreco.group(2);
+
+                if (link == null || link.startsWith("#") || link.isEmpty() ||
+                        titulo.toLowerCase().contains("acesse sua conta")) {
+                    continue;
+                }
+
+                titulo = titulo.replaceAll("\\s+", " ").trim();
+
+                if (!titulo.toLowerCase().contains(term.toLowerCase())) {
+                    continue;
+                }
+
+                if (link.startsWith("/")) {
+                    link = "https://www.olx.com.br" + link;
+                }
+
+                String imagem = extrairImagemProxima(html, matcherSemPreco.start());
+                produtos.add(new Produto(titulo, "Preço não informado", link, imagem));
+            }
+        }
+
+        return produtos;
+    }
+
+    private static String extrairImagemProxima(String html, int posicaoInicial) {
+        Pattern imagemPattern = Pattern.compile("<img[^>]*src=\"([^\"]*(?:jpg|jpeg|png|webp)[^\"]*)", Pattern.CASE_INSENSITIVE);
+        Matcher imagemMatcher = imagemPattern.matcher(html);
+
+        while (imagemMatcher.find()) {
+            if (imagemMatcher.start() > posicaoInicial) {
+                return imagemMatcher.group(1);
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,89 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.CrawlerRevisitProperties;
+import br.olx.crawler.dto.AlteracaoAnuncio;
+import br.olx.crawler.dto.Produto;
+import br.olx.crawler.dto.ResultadoCrawlLink;
+import br.olx.crawler.entity.Link;
+import br.olx.crawler.repository.LinkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RevisitSchedulerServiceTest {
+
+    private final LinkRepository linkRepository = mock(LinkRepository.class);
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final CrawlerScheduledService crawlerScheduledService = mock(CrawlerScheduledService.class);
+    private final ClusterLeaseService clusterLeaseService = mock(ClusterLeaseService.class);
+    private final CrawlerRevisitProperties properties = new CrawlerRevisitProperties();
+    private final Link link = new Link();
+    private RevisitSchedulerService service;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setTick(Duration.ofMillis(50));
+        properties.setJitterWindow(Duration.ofMillis(1));
+        link.setId("link-a");
+        link.setUri("https://www.olx.com.br/autos-e-pecas/motos/estado-rs");
+        link.setEnabled(true);
+        link.setProximaVisita(Instant.now().minusSeconds(1));
+        when(linkRepository.findByEnabledTrue()).thenReturn(Flux.just(link));
+        when(linkRepository.findAllById(anyIterable())).thenReturn(Flux.just(link));
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Link.class))).thenReturn(Mono.empty());
+        service = new RevisitSchedulerService(linkRepository, mongoTemplate, crawlerScheduledService, clusterLeaseService, properties);
+    }
+
+    @Test
+    void visitaComPaginasBloqueadasContaComoSemAlteracoes() {
+        when(clusterLeaseService.linksDesteNo(any(), anyString())).thenReturn(Flux.just(link));
+        AlteracaoAnuncio novo = new AlteracaoAnuncio(AlteracaoAnuncio.Tipo.NOVO, produto(), null);
+        when(crawlerScheduledService.revisitar(List.of(link)))
+                .thenReturn(Mono.just(List.of(new ResultadoCrawlLink(link, List.of(), false, 1, List.of(novo)))));
+
+        service.tick();
+
+        // 6 h sem histórico desaceleram para 9 h, em vez de acelerar para 3 h
+        await().atMost(Duration.ofSeconds(5)).until(() -> Long.valueOf(540).equals(link.getIntervaloRevisitaMinutos()));
+    }
+
+    @Test
+    void linkDeOutraInstanciaVoltaParaAFila() {
+        when(clusterLeaseService.linksDesteNo(any(), anyString())).thenReturn(Flux.empty()).thenReturn(Flux.just(link));
+        when(crawlerScheduledService.revisitar(List.of(link)))
+                .thenReturn(Mono.just(List.of(new ResultadoCrawlLink(link, List.of(), false, 0, List.of()))));
+
+        service.tick();
+        verify(crawlerScheduledService, never()).revisitar(any());
+
+        // A instância dona caiu: o link é relido no ciclo seguinte, sem esperar a recarga da fila
+        await().atMost(Duration.ofSeconds(5)).pollInterval(Duration.ofMillis(60)).untilAsserted(() -> {
+            service.tick();
+            verify(crawlerScheduledService).revisitar(List.of(link));
+        });
+    }
+
+    private static Produto produto() {
+        return new Produto("Tracer 900 GT", "R$ 45.000", "https://rs.olx.com.br/autos-e-pecas/motos/tracer-900-gt-1302456789", "");
+    }
+}
@@ -0,0 +1,75 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.dto.ResultadoBusca;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultCacheServiceTest {
+
+    private static final String BASE_URL = "https://www.olx.com.br";
+
+    private final SearchResultCacheService cache = new SearchResultCacheService(new SimpleMeterRegistry(), Duration.ofMinutes(1), 100);
+    private final AtomicInteger buscas = new AtomicInteger();
+
+    @Test
+    void mesmoPrazoCompartilhaABuscaEmAndamento() {
+        Sinks.One<ResultadoBusca> emAndamento = Sinks.one();
+
+        Mono<ResultadoBusca> primeira = buscar(Duration.ofSeconds(300), emAndamento.asMono());
+        Mono<ResultadoBusca> segunda = buscar(Duration.ofSeconds(300), Mono.never());
+        emAndamento.tryEmitValue(resultado(true));
+
+        assertThat(primeira.block()).isSameAs(segunda.block());
+        assertThat(buscas).hasValue(1);
+    }
+
+    @Test
+    void prazoMenorNaoEsperaABuscaLongaEmAndamento() {
+        buscar(Duration.ofSeconds(300), Mono.never());
+
+        ResultadoBusca curta = buscar(Duration.ofSeconds(10), Mono.just(resultado(false))).block(Duration.ofSeconds(1));
+
+        assertThat(curta.isCompleto()).isFalse();
+        assertThat(buscas).hasValue(2);
+    }
+
+    @Test
+    void resultadoParcialNaoEhServidoAOutraBusca() {
+        buscar(Duration.ofSeconds(10), Mono.just(resultado(false))).block();
+
+        ResultadoBusca longa = buscar(Duration.ofSeconds(300), Mono.just(resultado(true))).block();
+
+        assertThat(longa.isCompleto()).isTrue();
+        assertThat(buscas).hasValue(2);
+    }
+
+    @Test
+    void resultadoCompletoValeParaQualquerPrazo() {
+        ResultadoBusca completo = buscar(Duration.ofSeconds(300), Mono.just(resultado(true))).block();
+
+        assertThat(buscar(Duration.ofSeconds(10), Mono.never()).block(Duration.ofSeconds(1))).isSameAs(completo);
+        assertThat(buscas).hasValue(1);
+    }
+
+    // Inscreve já, como o controller faria, para a busca ficar em andamento no cache
+    private Mono<ResultadoBusca> buscar(Duration prazo, Mono<ResultadoBusca> resultado) {
+        Mono<ResultadoBusca> busca = cache.buscar("tracer 900", 3, BASE_URL, prazo, () -> {
+            buscas.incrementAndGet();
+            return resultado;
+        }).cache();
+        busca.subscribe();
+        return busca;
+    }
+
+    private static ResultadoBusca resultado(boolean completo) {
+        return new ResultadoBusca(List.of(), completo, 1, 3);
+    }
+}
@@ -0,0 +1,159 @@
+package br.olx.crawler.service;
+
+import br.olx.crawler.config.WhatsappDispatchProperties;
+import br.olx.crawler.entity.WhatsappOutbox;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.sun.net.httpserver.HttpServer;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+/**
+ * Despacho contra um stub local do {@code POST /send-message} e a fila de retentativas num
+ * MongoDB em memória (mongo-java-server).
+ */
+class WhatsappDispatcherServiceTest {
+
+    private static final int LIMITE = 100;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> recebidas = new CopyOnWriteArrayList<>();
+    // Status HTTP devolvido pelo stub
+    private volatile int status = 200;
+    private HttpServer api;
+    private MongoServer servidor;
+    private MongoClient client;
+    private ReactiveMongoTemplate mongoTemplate;
+    private WhatsappDispatcherService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        api = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        api.createContext("/send-message", troca -> {
+            JsonNode corpo = objectMapper.readTree(troca.getRequestBody());
+            byte[] resposta;
+            if (status == 200) {
+                recebidas.add(corpo.get("message").asText());
+                resposta = "{\"success\":true}".getBytes(StandardCharsets.UTF_8);
+            } else {
+                resposta = "{\"success\":false,\"error\":\"indisponível\"}".getBytes(StandardCharsets.UTF_8);
+            }
+            troca.getResponseHeaders().add("Content-Type", "application/json");
+            troca.sendResponseHeaders(status, resposta.length);
+            try (OutputStream saida = troca.getResponseBody()) {
+                saida.write(resposta);
+            }
+        });
+        api.start();
+
+        servidor = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(servidor.bindAndGetConnectionString());
+        mongoTemplate = spy(new ReactiveMongoTemplate(client, "crawler"));
+
+        WhatsappMessageService whatsappMessageService = new WhatsappMessageService(WebClient.builder());
+        ReflectionTestUtils.setField(whatsappMessageService, "whatsappApiUrl", "http://127.0.0.1:" + api.getAddress().getPort());
+        WhatsappDispatchProperties properties = new WhatsappDispatchProperties();
+        properties.setNumber("51999999999");
+        properties.setMinInterval(Duration.ofMillis(1));
+        properties.setMaxMessageLength(LIMITE);
+        properties.setRetryBackoff(Duration.ofMinutes(1));
+        service = new WhatsappDispatcherService(whatsappMessageService, mongoTemplate, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        api.stop(0);
+        client.close();
+        servidor.shutdownNow();
+    }
+
+    @Test
+    void linhaDoTamanhoDoLimiteNaoGeraMensagemVazia() {
+        String linhaNoLimite = "a".repeat(LIMITE);
+        String bloco = "*Novidades nos anúncios*\n" + linhaNoLimite + "\n" + "b".repeat(2 * LIMITE) + "\n";
+
+        assertThat(service.enviar(List.of(bloco, "*Outro link*\n")).block(Duration.ofSeconds(10))).isEqualTo(recebidas.size());
+
+        assertThat(recebidas).isNotEmpty().allSatisfy(mensagem -> assertThat(mensagem).isNotBlank().hasSizeLessThanOrEqualTo(LIMITE));
+        assertThat(String.join("", recebidas)).contains(linhaNoLimite, "*Outro link*");
+    }
+
+    @Test
+    void falhaNoEnvioVaiParaAFilaESaiNaRetentativa() {
+        status = 500;
+        assertThat(service.enviar(List.of("*Novidades*")).block(Duration.ofSeconds(10))).isZero();
+        WhatsappOutbox pendente = mongoTemplate.findOne(new Query(), WhatsappOutbox.class).block();
+        assertThat(pendente.getStatus()).isEqualTo(WhatsappOutbox.Status.PENDENTE);
+
+        status = 200;
+        vencer(pendente);
+        service.reenviarPendentes();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> statusDe(pendente) == WhatsappOutbox.Status.ENVIADA);
+        assertThat(recebidas).containsExactly("*Novidades*");
+    }
+
+    @Test
+    void falhaAoGravarOStatusNaoReenviaAMensagem() {
+        status = 500;
+        service.enviar(List.of("*Novidades*")).block(Duration.ofSeconds(10));
+        WhatsappOutbox pendente = mongoTemplate.findOne(new Query(), WhatsappOutbox.class).block();
+
+        status = 200;
+        vencer(pendente);
+        doReturn(Mono.error(new DataAccessResourceFailureException("Mongo indisponível")))
+                .when(mongoTemplate).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(WhatsappOutbox.class));
+        service.reenviarPendentes();
+        AtomicBoolean reenviando = (AtomicBoolean) ReflectionTestUtils.getField(service, "reenviando");
+        await().atMost(Duration.ofSeconds(10)).untilFalse(reenviando);
+
+        // O banco voltou e a reserva venceu: a mensagem volta da fila, mas só o status é gravado
+        doCallRealMethod().when(mongoTemplate).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(WhatsappOutbox.class));
+        vencer(pendente);
+        service.reenviarPendentes();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> statusDe(pendente) == WhatsappOutbox.Status.ENVIADA);
+        assertThat(recebidas).containsExactly("*Novidades*");
+    }
+
+    private void vencer(WhatsappOutbox pendente) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(pendente.getId())),
+                Update.update("proximaTentativa", Instant.now().minusSeconds(1)), WhatsappOutbox.class).block();
+    }
+
+    private WhatsappOutbox.Status statusDe(WhatsappOutbox pendente) {
+        return mongoTemplate.findById(pendente.getId(), WhatsappOutbox.class).block().getStatus();
+    }
+}